@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.Bitness;
+import eu.hansolo.jdktools.FPU;
+import eu.hansolo.jdktools.HashAlgorithm;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.Verification;
+import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.distribution.Distribution;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.Feature;
+import io.foojay.api.pkg.MajorVersion;
+import io.foojay.api.pkg.Pkg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Generates the packages the benchmarks run on. The same seed is used every time, so all benchmarks
+ * and all runs work on the same packages.
+ */
+public class BenchmarkPkgs {
+    private static final long                  SEED              = 42;
+    private static final List<Distribution>    DISTRIBUTIONS     = List.of(Distro.ZULU.get(), Distro.LIBERICA.get(), Distro.TEMURIN.get(), Distro.CORRETTO.get());
+    private static final List<Architecture>    ARCHITECTURES     = List.of(Architecture.X64, Architecture.AARCH64, Architecture.X86, Architecture.ARM);
+    private static final List<OperatingSystem> OPERATING_SYSTEMS = List.of(OperatingSystem.LINUX, OperatingSystem.WINDOWS, OperatingSystem.MACOS, OperatingSystem.ALPINE_LINUX);
+    private static final List<Integer>         FEATURE_VERSIONS  = List.of(8, 11, 17, 21);
+
+
+    private BenchmarkPkgs() {}
+
+
+    /**
+     * Returns the given number of packages sorted by Pkg.DEFAULT_ORDER, every fifth package bundles JavaFX
+     * @param numberOfPkgs
+     * @return the given number of packages sorted by Pkg.DEFAULT_ORDER
+     */
+    public static List<Pkg> createPkgs(final int numberOfPkgs) {
+        final Random    random = new Random(SEED);
+        final List<Pkg> pkgs   = new ArrayList<>(numberOfPkgs);
+        for (int i = 0 ; i < numberOfPkgs ; i++) {
+            final VersionNumber versionNumber = new VersionNumber(FEATURE_VERSIONS.get(random.nextInt(FEATURE_VERSIONS.size())), 0, random.nextInt(40), 0);
+            final String        filename      = "jdk-" + versionNumber + "-" + i + ".tar.gz";
+            pkgs.add(new Pkg(DISTRIBUTIONS.get(random.nextInt(DISTRIBUTIONS.size())), versionNumber, new MajorVersion(versionNumber.getFeature().getAsInt(), TermOfSupport.LTS),
+                             ARCHITECTURES.get(random.nextInt(ARCHITECTURES.size())), Bitness.BIT_64, FPU.UNKNOWN, OPERATING_SYSTEMS.get(random.nextInt(OPERATING_SYSTEMS.size())),
+                             random.nextBoolean() ? PackageType.JDK : PackageType.JRE, ReleaseStatus.GA, ArchiveType.TAR_GZ, TermOfSupport.LTS, random.nextInt(5) == 0, true, filename,
+                             "https://example.com/" + filename, "https://example.com", "", "https://example.com/" + filename + ".sha256", "", HashAlgorithm.SHA256,
+                             Boolean.TRUE, Verification.UNKNOWN, "", Verification.UNKNOWN, "", 0, true, 190_000_000, random.nextBoolean() ? List.of(Feature.LOOM) : List.of()));
+        }
+        pkgs.sort(Pkg.DEFAULT_ORDER);
+        return pkgs;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api;
+
+import eu.hansolo.jdktools.util.OutputFormat;
+import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.PkgCodec;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.foojay.api.util.Constants.API_VERSION_V3;
+
+
+/**
+ * Compares decoding the packages collection with the PkgCodec against the former way
+ * (bson to Document, Document to json, json to Pkg with Gson).
+ * Each invocation decodes all documents like a full sync, run with -prof gc to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PkgDecodingBenchmark {
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    @Param({ "100000" })
+    private int                   numberOfDocuments;
+    private List<RawBsonDocument> documents;
+    private PkgCodec              pkgCodec;
+    private DocumentCodec         documentCodec;
+
+
+    @Setup
+    public void setup() {
+        documents     = new ArrayList<>(numberOfDocuments);
+        pkgCodec      = new PkgCodec();
+        documentCodec = new DocumentCodec();
+        for (Pkg pkg : BenchmarkPkgs.createPkgs(numberOfDocuments)) {
+            documents.add(RawBsonDocument.parse(Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED, API_VERSION_V3)).toJson()));
+        }
+    }
+
+
+    @Benchmark
+    public List<Pkg> codec() {
+        final List<Pkg> pkgs = new ArrayList<>(documents.size());
+        for (RawBsonDocument document : documents) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+                final Pkg pkg = pkgCodec.decode(reader, DECODER_CONTEXT);
+                if (null != pkg) { pkgs.add(pkg); }
+            }
+        }
+        return pkgs;
+    }
+
+    @Benchmark
+    public List<Pkg> documentToJson() {
+        final List<Pkg> pkgs = new ArrayList<>(documents.size());
+        for (RawBsonDocument document : documents) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+                final Document doc = documentCodec.decode(reader, DECODER_CONTEXT);
+                pkgs.add(new Pkg(doc.toJson()));
+            }
+        }
+        return pkgs;
+    }
+}
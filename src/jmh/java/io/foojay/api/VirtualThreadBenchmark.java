@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api;
+
+import com.sun.net.httpserver.HttpServer;
+import io.foojay.api.util.ExecutorProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares blocking HEAD requests on a fixed pool of platform threads with the same requests on virtual threads
+ * (FOOJAY_API_VIRTUAL_THREADS). Each invocation sends numberOfRequests requests to a local stub server that
+ * answers after latency milliseconds, like a scraper that requests the sizes of all packages of a distribution.
+ * The virtual mode needs JDK 21 or newer, on older runtimes run it with -p mode=platform.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class VirtualThreadBenchmark {
+    private static final int  PLATFORM_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+    private static final long CONTENT_LENGTH   = 190_000_000;
+
+    @Param({ "platform", "virtual" })
+    private String          mode;
+    @Param({ "2000" })
+    private int             numberOfRequests;
+    @Param({ "50" })
+    private int             latency;
+    private HttpServer      server;
+    private ExecutorService serverExecutor;
+    private ExecutorService executor;
+    private HttpClient      httpClient;
+    private URI             uri;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final boolean virtual = "virtual".equals(mode);
+        if (virtual && !ExecutorProvider.isVirtualThreadsSupported()) {
+            throw new IllegalStateException("Virtual threads need JDK 21 or newer, run with -p mode=platform on JDK " + Runtime.version().feature());
+        }
+        serverExecutor = Executors.newCachedThreadPool();
+        server         = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Length", Long.toString(CONTENT_LENGTH));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        executor   = ExecutorProvider.newExecutor("benchmark", PLATFORM_THREADS, virtual);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        uri        = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/jdk.tar.gz");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+
+    @Benchmark
+    public long headRequests() throws InterruptedException, ExecutionException {
+        final HttpRequest        request = HttpRequest.newBuilder().method("HEAD", HttpRequest.BodyPublishers.noBody()).uri(uri).build();
+        final List<Future<Long>> futures = new ArrayList<>(numberOfRequests);
+        for (int i = 0 ; i < numberOfRequests ; i++) {
+            futures.add(executor.submit(() -> {
+                final HttpResponse<Void> response = httpClient.send(request, BodyHandlers.discarding());
+                return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            }));
+        }
+        long totalSize = 0;
+        for (Future<Long> future : futures) { totalSize += future.get(); }
+        return totalSize;
+    }
+}
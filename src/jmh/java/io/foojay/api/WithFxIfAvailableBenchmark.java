@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api;
+
+import io.foojay.api.pkg.Pkg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+
+/**
+ * Compares the hash based withFxIfAvailable de-duplication with the former pairwise comparison.
+ * The pairwise comparison is quadratic, so each measurement is a single invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class WithFxIfAvailableBenchmark {
+    @Param({ "100000" })
+    private int       numberOfPkgs;
+    private List<Pkg> pkgs;
+
+
+    @Setup
+    public void setup() {
+        pkgs = BenchmarkPkgs.createPkgs(numberOfPkgs);
+    }
+
+
+    @Benchmark
+    public List<Pkg> hashed() {
+        return DiscoService.INSTANCE.getPkgsWithFxIfAvailable(new ArrayList<>(pkgs));
+    }
+
+    @Benchmark
+    public List<Pkg> pairwise() {
+        final List<Pkg> pkgsFound    = new ArrayList<>(pkgs);
+        final List<Pkg> pkgsToRemove = pkgsFound.stream()
+                                                .filter(Predicate.not(Pkg::isJavaFXBundled))
+                                                .filter(pkg -> pkgsFound.stream().filter(p -> p.equalsExceptJavaFXAndPackageType(pkg)).count() > 0)
+                                                .collect(Collectors.toList());
+        pkgsFound.removeAll(pkgsToRemove);
+        return pkgsFound;
+    }
+}
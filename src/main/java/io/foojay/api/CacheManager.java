@@ -20,6 +20,7 @@
 package io.foojay.api;
 
 import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.mongodb.MongoException;
 import eu.hansolo.jdktools.scopes.BuildScope;
 import eu.hansolo.jdktools.util.OutputFormat;
 import io.foojay.api.mqtt.MqttEvt;
@@ -28,24 +29,28 @@ import io.foojay.api.mqtt.MqttManager3;
 import io.foojay.api.pkg.Distro;
 import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
+import io.foojay.api.util.CacheSnapshot;
+import io.foojay.api.util.Config;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
-import io.foojay.api.util.JsonCache;
 import io.foojay.api.util.PkgCache;
+import io.foojay.api.util.ResponseBlob;
 import io.foojay.api.util.State;
 import io.micronaut.context.annotation.Requires;
 import io.micronaut.context.env.Environment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -74,9 +79,7 @@ public enum CacheManager {
     public final         MqttManager3                 mqttManager                 = new MqttManager3();
     public final         MqttEvtObserver              mqttEvtObserver             = evt -> handleMqttEvt(evt);
     public final         PkgCache<String, Pkg>        pkgCache                    = new PkgCache<>();
-    public final         JsonCache<String, String>    jsonCacheV2                 = new JsonCache<>();
-    public final         JsonCache<String, String>    jsonCacheV3                 = new JsonCache<>();
-    public final         JsonCache<String, String>    jsonCacheMinimizedV3        = new JsonCache<>();
+    public final         AtomicReference<CacheSnapshot> snapshot                  = new AtomicReference<>(CacheSnapshot.EMPTY);
     public final         Map<Integer, Boolean>        maintainedMajorVersions     = new ConcurrentHashMap<>() {{
         put(1, false);
         put(2, false);
@@ -105,6 +108,9 @@ public enum CacheManager {
     public final         AtomicLong                   msToFillCacheWithPkgsFromDB = new AtomicLong(-1);
     public final         AtomicLong                   numberOfPackages            = new AtomicLong(-1);
     public final         AtomicReference<Instant>     lastSync                    = new AtomicReference<>(Instant.MIN);
+    public final         AtomicReference<Instant>     lastFullSync                = new AtomicReference<>(Instant.MIN);
+    private final        AtomicReference<Instant>     lastSyncStart               = new AtomicReference<>(Instant.MIN);
+    private final        Map<Distro, Instant>         syncedLastUpdates           = new ConcurrentHashMap<>();
     private final        List<MajorVersion>           majorVersions               = new LinkedList<>();
     private final        List<MajorVersion>           graalvmMajorVersions        = new LinkedList<>();
 
@@ -164,25 +170,6 @@ public enum CacheManager {
         }
     }
 
-    public void updateJsonCacheV2() {
-        StateManager.INSTANCE.setState(State.UPDATING, "Updating Json Cache V2");
-        pkgCache.getEntrySet().parallelStream().forEach(entry -> jsonCacheV2.put(entry.getKey(), entry.getValue().toString(OutputFormat.REDUCED_COMPRESSED, Constants.API_VERSION_V2)));
-        final List<String> keysToRemove = jsonCacheV2.getEntrySet().parallelStream().filter(entry -> !pkgCache.containsKey(entry.getKey())).map(entry -> entry.getKey()).collect(Collectors.toList());
-        jsonCacheV2.remove(keysToRemove);
-    }
-    public void updateJsonCacheV3() {
-        StateManager.INSTANCE.setState(State.UPDATING, "Updating Json Cache V3");
-        pkgCache.getEntrySet().parallelStream().forEach(entry -> jsonCacheV3.put(entry.getKey(), entry.getValue().toString(OutputFormat.REDUCED_COMPRESSED, Constants.API_VERSION_V3)));
-        final List<String> keysToRemove = jsonCacheV3.getEntrySet().parallelStream().filter(entry -> !pkgCache.containsKey(entry.getKey())).map(entry -> entry.getKey()).collect(Collectors.toList());
-        jsonCacheV3.remove(keysToRemove);
-    }
-    public void updateJsonCacheMinimizedV3() {
-        StateManager.INSTANCE.setState(State.UPDATING, "Updating Json Cache Reduced V3");
-        pkgCache.getEntrySet().parallelStream().forEach(entry -> jsonCacheMinimizedV3.put(entry.getKey(), entry.getValue().toString(OutputFormat.MINIMIZED, Constants.API_VERSION_V3)));
-        final List<String> keysToRemove = jsonCacheMinimizedV3.getEntrySet().parallelStream().filter(entry -> !pkgCache.containsKey(entry.getKey())).map(entry -> entry.getKey()).collect(Collectors.toList());
-        jsonCacheMinimizedV3.remove(keysToRemove);
-    }
-
     public List<MajorVersion> getMajorVersions() {
         return getMajorVersions(BuildScope.BUILD_OF_OPEN_JDK);
     }
@@ -195,24 +182,131 @@ public enum CacheManager {
         }
     }
 
+    /**
+     * Returns the current snapshot of the package catalogue. Readers that need more than one part
+     * of the catalogue (e.g. the index and the json cache) should fetch the snapshot once.
+     * @return the current snapshot of the package catalogue
+     */
+    public CacheSnapshot getSnapshot() { return snapshot.get(); }
+
+    /**
+     * Returns the all packages message for the given variant as precompressed blob with ETag. Each variant is
+     * serialized and compressed only once per cache generation, all further requests are served from the blob.
+     * @param apiVersion Constants.API_VERSION_V2 or Constants.API_VERSION_V3
+     * @param downloadable
+     * @param include_ea
+     * @param scope
+     * @return the all packages message for the given variant as precompressed blob with ETag
+     */
+    public ResponseBlob getAllPackagesBlob(final String apiVersion, final Boolean downloadable, final Boolean include_ea, final BuildScope scope) {
+        final boolean    isDownloadable = null != downloadable && downloadable;
+        final boolean    includeEa      = null != include_ea && include_ea;
+        final BuildScope buildScope     = (BuildScope.BUILD_OF_OPEN_JDK == scope || BuildScope.BUILD_OF_GRAALVM == scope) ? scope : null;
+        final String     key            = String.join("|", "all_packages", apiVersion, Boolean.toString(isDownloadable), Boolean.toString(includeEa), null == buildScope ? "" : buildScope.name());
+        return getSnapshot().getResponseBlob(key, currentSnapshot -> {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1024 * 1024);
+            try {
+                Helper.writeAllPackagesMsg(outputStream, currentSnapshot, apiVersion, isDownloadable, includeEa, buildScope);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return ResponseBlob.of(outputStream.toByteArray());
+        });
+    }
+
+    /**
+     * Synchronizes the cache with the database. Only the packages of distributions whose last update
+     * in the distroupdates collection changed since the last sync are reloaded, all packages are
+     * reloaded if the cache is empty or the last full sync is older than the configured interval.
+     * The last updates are stored in whole seconds, so distributions whose last update is not before the
+     * second in which the last sync started are reloaded again, otherwise a write in that second would be missed.
+     */
     public void syncCacheWithDatabase() {
         if (syncWithDatabaseInProgress.get()) { return; }
 
         syncWithDatabaseInProgress.set(true);
         StateManager.INSTANCE.setState(State.SYNCHRONIZING, "Synchronizing cache with db");
 
-        final long startSyncronizingCache = System.currentTimeMillis();
+        final long    startSyncronizingCache = System.currentTimeMillis();
+        final Instant syncStart              = Instant.now();
         LOGGER.debug("Get last updates per distro from mongodb");
         Map<Distro, Instant> lastUpdates = MongoDbManager.INSTANCE.getLastUpdatesForDistros();
         Distro.getAsListWithoutNoneAndNotFound().forEach(distro -> distro.lastUpdate.set(lastUpdates.get(distro)));
 
-        LOGGER.debug("Fill cache with packages from mongodb");
-        final long      startRetrievingPkgFromMongodb = System.currentTimeMillis();
-        final List<Pkg> pkgsFromMongoDb               = MongoDbManager.INSTANCE.getPkgs();
-        LOGGER.debug("Got all pkgs from mongodb in {} ms", (System.currentTimeMillis() - startRetrievingPkgFromMongodb));
+        final CacheSnapshot currentSnapshot = snapshot.get();
+        final boolean       fullSync        = currentSnapshot.size() == 0 || syncedLastUpdates.isEmpty() || lastUpdates.isEmpty() ||
+                                              lastFullSync.get().isBefore(Instant.now().minus(Config.INSTANCE.getFoojayApiFullSyncInterval(), ChronoUnit.MINUTES));
+        final Map<String, Pkg> patch;
+        final Set<Distro>      failedDistros = new HashSet<>();
+        if (fullSync) {
+            LOGGER.debug("Fill cache with packages from mongodb");
+            final long      startRetrievingPkgFromMongodb = System.currentTimeMillis();
+            final List<Pkg> pkgsFromMongoDb;
+            try {
+                pkgsFromMongoDb = MongoDbManager.INSTANCE.getPkgs();
+            } catch (MongoException e) {
+                // Keep the current snapshot instead of publishing an empty catalogue
+                LOGGER.error("Error loading packages from mongodb, keeping {} packages in cache. {}", currentSnapshot.size(), e.getMessage());
+                syncWithDatabaseInProgress.set(false);
+                return;
+            }
+            LOGGER.debug("Got all pkgs from mongodb in {} ms", (System.currentTimeMillis() - startRetrievingPkgFromMongodb));
+            patch = pkgsFromMongoDb.parallelStream().collect(Collectors.toMap(Pkg::getId, pkg -> pkg, (pkg1, pkg2) -> pkg2));
+        } else {
+            final Set<Distro> updatedDistros    = new HashSet<>();
+            final Instant     previousSyncStart = lastSyncStart.get().truncatedTo(ChronoUnit.SECONDS);
+            lastUpdates.forEach((distro, lastUpdate) -> {
+                if (!lastUpdate.equals(syncedLastUpdates.get(distro)) || !lastUpdate.isBefore(previousSyncStart)) { updatedDistros.add(distro); }
+            });
+            syncedLastUpdates.keySet().stream().filter(distro -> !lastUpdates.containsKey(distro)).forEach(updatedDistros::add);
+            if (updatedDistros.isEmpty()) {
+                LOGGER.debug("No distribution updated since last sync with mongodb");
+                lastSyncStart.set(syncStart);
+                lastSync.set(Instant.now());
+                syncWithDatabaseInProgress.set(false);
+                return;
+            }
 
-        Map<String, Pkg> patch = pkgsFromMongoDb.parallelStream().collect(Collectors.toMap(Pkg::getId, pkg -> pkg));
-        pkgCache.setAll(patch);
+            LOGGER.debug("Update cache with packages of {} from mongodb", updatedDistros);
+            final long startRetrievingPkgFromMongodb = System.currentTimeMillis();
+            patch = new HashMap<>(currentSnapshot.getPkgs());
+            for (Distro distro : updatedDistros) {
+                // Packages of a distribution are only replaced if they could be loaded, otherwise it is retried on the next sync
+                final List<Pkg> pkgsOfDistro;
+                try {
+                    pkgsOfDistro = MongoDbManager.INSTANCE.getPkgsForDistro(distro);
+                } catch (MongoException e) {
+                    LOGGER.error("Error loading packages of {} from mongodb, keeping packages in cache. {}", distro.getApiString(), e.getMessage());
+                    failedDistros.add(distro);
+                    continue;
+                }
+                patch.values().removeIf(pkg -> null != pkg.getDistribution() && distro == pkg.getDistribution().getDistro());
+                pkgsOfDistro.forEach(pkg -> patch.put(pkg.getId(), pkg));
+            }
+            LOGGER.debug("Got pkgs of updated distributions from mongodb in {} ms", (System.currentTimeMillis() - startRetrievingPkgFromMongodb));
+        }
+
+        // Build the sorted index and the json caches off to the side and publish them at once,
+        // json of packages that did not change is taken over from the current snapshot
+        final long          startBuildingSnapshot = System.currentTimeMillis();
+        final CacheSnapshot newSnapshot           = CacheSnapshot.of(currentSnapshot.getGeneration() + 1, patch, currentSnapshot);
+        LOGGER.debug("Built package index and json caches in {} ms", (System.currentTimeMillis() - startBuildingSnapshot));
+
+        snapshot.set(newSnapshot);
+        // Replaced at once, so readers of pkgCache never see a partially patched catalogue
+        pkgCache.setAll(newSnapshot.getPkgs());
+        if (fullSync) { lastFullSync.set(Instant.now()); }
+        lastSyncStart.set(syncStart);
+        final Map<Distro, Instant> previousLastUpdates = new HashMap<>(syncedLastUpdates);
+        syncedLastUpdates.clear();
+        syncedLastUpdates.putAll(lastUpdates);
+        failedDistros.forEach(distro -> {
+            if (previousLastUpdates.containsKey(distro)) {
+                syncedLastUpdates.put(distro, previousLastUpdates.get(distro));
+            } else {
+                syncedLastUpdates.remove(distro);
+            }
+        });
 
         numberOfPackages.set(pkgCache.size());
         msToFillCacheWithPkgsFromDB.set(System.currentTimeMillis() - startSyncronizingCache);
@@ -222,7 +316,7 @@ public enum CacheManager {
 
         lastSync.set(Instant.now());
         syncWithDatabaseInProgress.set(false);
-        }
+    }
 
 
     // ******************** MQTT Message handling *****************************
@@ -239,11 +333,6 @@ public enum CacheManager {
 
                             // Update cache with pkgs from mongodb
                             syncCacheWithDatabase();
-
-                            // Update json cache
-                            updateJsonCacheV2();
-                        updateJsonCacheV3();
-                        updateJsonCacheMinimizedV3();
                         } catch (Exception e) {
                             syncWithDatabaseInProgress.set(false);
                         }
@@ -254,11 +343,6 @@ public enum CacheManager {
                         mqttManager.publish(Constants.MQTT_API_STATE_TOPIC, "Database updated -> syncCacheWithDatabase");
                         // Update cache with pkgs from mongodb
                         syncCacheWithDatabase();
-
-                        // Update json cache
-                        updateJsonCacheV2();
-                        updateJsonCacheV3();
-                        updateJsonCacheMinimizedV3();
                     } catch (Exception e) {
                         syncWithDatabaseInProgress.set(false);
                     }
@@ -270,11 +354,6 @@ public enum CacheManager {
 
                         // Update cache with pkgs from mongodb
                         syncCacheWithDatabase();
-
-                        // Update json cache
-                        updateJsonCacheV2();
-                        updateJsonCacheV3();
-                        updateJsonCacheMinimizedV3();
                     } catch (Exception e) {
                         syncWithDatabaseInProgress.set(false);
                     }
@@ -33,116 +33,117 @@ import eu.hansolo.jdktools.TermOfSupport;
 import eu.hansolo.jdktools.Verification;
 import eu.hansolo.jdktools.scopes.Scope;
 import eu.hansolo.jdktools.util.Comparison;
+import eu.hansolo.jdktools.util.OutputFormat;
 import eu.hansolo.jdktools.versioning.VersionNumber;
 import io.foojay.api.distribution.Distribution;
 import io.foojay.api.pkg.Distro;
 import io.foojay.api.pkg.Feature;
 import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
-import io.foojay.api.util.Constants;
+import io.foojay.api.pkg.PkgJavaFXKey;
+import io.foojay.api.pkg.PkgQuery;
+import io.foojay.api.pkg.PkgUpdateKey;
+import io.foojay.api.util.CacheSnapshot;
+import io.foojay.api.util.Config;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgIndex;
+import io.foojay.api.util.QueryCache;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.toSet;
-
 
 public enum DiscoService {
     INSTANCE;
 
+    private final QueryCache<PkgQuery, List<Pkg>>  queryCache = new QueryCache<>("discoapi.query.cache", Config.INSTANCE.getFoojayApiQueryCacheSize());
+    // ETags are cached per query, api version and output format, because each representation needs its own ETag
+    private final QueryCache<List<Object>, String> eTagCache  = new QueryCache<>("discoapi.etag.cache", Config.INSTANCE.getFoojayApiQueryCacheSize());
+
+
     public List<Pkg> getPkgsFromCache(final VersionNumber fromVersionNumber, final VersionNumber toVersionNumber, final MajorVersion jdkVersion, final List<Distribution> distributions, final List<Architecture> architectures, final List<FPU> fpus, final List<ArchiveType> archiveTypes,
                                       final PackageType packageType, final List<OperatingSystem> operatingSystems, final List<LibCType> libCTypes, final List<ReleaseStatus> releaseStatus, final List<TermOfSupport> termsOfSupport,
                                       final Bitness bitness, final Boolean javafxBundled, final Boolean withFxIfAvailable, final Boolean directlyDownloadable, final List<Feature> features, final Boolean signatureAvailable,
                                       final Boolean freeToUseInProduction, final Verification tckTested, final Verification aqavitCertified, final List<Scope> distroScopes, final Match match, final List<Scope> pkgScopes) {
-        Collection<Pkg> selection = CacheManager.INSTANCE.pkgCache.getPkgs();
-        if (null != pkgScopes && !pkgScopes.isEmpty()) {
-            for (Scope scope : pkgScopes) {
-                switch (scope.getApiString()) {
-                    case "signature_available"     -> selection = selection.parallelStream().filter(pkg -> !pkg.getSignatureUri().isEmpty()).collect(Collectors.toList());
-                    case "signature_not_available" -> selection = selection.parallelStream().filter(pkg -> pkg.getSignatureUri().isEmpty()).collect(Collectors.toList());
-                }
-            }
-        }
-        Collection<Pkg> pkgSelection = selection;
-
-        final OptionalInt nextButOneEA = Helper.getNextButOneEA();
-        final int         latestEA     = nextButOneEA.isPresent() ? nextButOneEA.getAsInt() : MajorVersion.getLatest(true).getAsInt();
-
-        final VersionNumber minVersionNumber = null == fromVersionNumber ? new VersionNumber(6)                                : fromVersionNumber;
-        final VersionNumber maxVersionNumber = null == toVersionNumber   ? new VersionNumber(latestEA) : toVersionNumber;
-        List<Pkg> pkgsFound = pkgSelection.parallelStream()
-                                          .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                          .filter(pkg -> distributions.isEmpty()                  ? pkg.getDistribution()        != null        : distributions.contains(pkg.getDistribution()))
-                                          .filter(pkg -> Match.ANY == match                       ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                          .filter(pkg -> null             == jdkVersion           ? pkg.getJdkVersion()          != null        : pkg.getJdkVersion().equals(jdkVersion))
-                                          .filter(pkg -> architectures.isEmpty()                  ? pkg.getArchitecture()        != null        : architectures.contains(pkg.getArchitecture()))
-                                          .filter(pkg -> archiveTypes.isEmpty()                   ? pkg.getArchiveType()         != null        : archiveTypes.contains(pkg.getArchiveType()))
-                                          .filter(pkg -> operatingSystems.isEmpty()               ? pkg.getOperatingSystem()     != null        : operatingSystems.contains(pkg.getOperatingSystem()))
-                                          .filter(pkg -> libCTypes.isEmpty()                      ? pkg.getLibCType()            != null        : libCTypes.contains(pkg.getLibCType()))
-                                          .filter(pkg -> termsOfSupport.isEmpty()                 ? pkg.getTermOfSupport()       != null        : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                          .filter(pkg -> PackageType.NONE == packageType          ? pkg.getPackageType()         != packageType : pkg.getPackageType()         == packageType)
-                                          .filter(pkg -> releaseStatus.isEmpty()                  ? pkg.getReleaseStatus()       != null        : releaseStatus.contains(pkg.getReleaseStatus()))
-                                          .filter(pkg -> Bitness.NONE     == bitness              ? pkg.getBitness()             != bitness     : pkg.getBitness()             == bitness)
-                                          .filter(pkg -> fpus.isEmpty()                           ? pkg.getFPU()                 != null        : fpus.contains(pkg.getFPU()))
-                                          .filter(pkg -> null             == javafxBundled        ? pkg.isJavaFXBundled()        != null        : pkg.isJavaFXBundled()        == javafxBundled)
-                                          .filter(pkg -> null             == directlyDownloadable ? pkg.isDirectlyDownloadable() != null        : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                          .filter(pkg -> features.isEmpty()                       ? pkg.getFeatures().isEmpty()                 : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                          .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                          .filter(pkg -> null == freeToUseInProduction            ? pkg.getFreeUseInProduction() != null        : pkg.getFreeUseInProduction())
-                                          .filter(pkg -> Verification.NONE == tckTested           ? pkg.getTckTested()           != null        : pkg.getTckTested()           == tckTested)
-                                          .filter(pkg -> Verification.NONE == aqavitCertified     ? pkg.getAqavitCertified()     != null        : pkg.getAqavitCertified()     == aqavitCertified)
-                                          .filter(pkg -> pkg.getVersionNumber().compareTo(minVersionNumber) >= 0)
-                                          .filter(pkg -> pkg.getVersionNumber().compareTo(maxVersionNumber) <= 0)
-                                          .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                          .collect(Collectors.toList());
-        if (null == javafxBundled && withFxIfAvailable) {
-            List<Pkg> pkgsToRemove = pkgsFound.stream()
-                                              .filter(Predicate.not(Pkg::isJavaFXBundled))
-                                              .filter(pkg -> pkgsFound.stream().filter(p -> p.equalsExceptJavaFXAndPackageType(pkg)).count() > 0)
-                                              .collect(Collectors.toList());
-            pkgsFound.removeAll(pkgsToRemove);
-        }
-
-        return pkgsFound.parallelStream().sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed())).collect(Collectors.toList());
+        final VersionNumber minVersionNumber = null == fromVersionNumber ? new VersionNumber(6) : fromVersionNumber;
+        return getPkgsFromCache(new PkgQuery(minVersionNumber, toVersionNumber, Comparison.RANGE_INCLUDING, jdkVersion, distributions, architectures, fpus, archiveTypes, packageType, operatingSystems, libCTypes, releaseStatus, termsOfSupport, bitness, javafxBundled, withFxIfAvailable, directlyDownloadable, Latest.NONE, features, signatureAvailable, freeToUseInProduction, tckTested, aqavitCertified, distroScopes, match, pkgScopes));
     }
 
     public List<Pkg> getPkgsFromCache(final VersionNumber versionNumber, final Comparison comparison, final MajorVersion jdkVersion, final List<Distribution> distributions, final List<Architecture> architectures, final List<FPU> fpus, final List<ArchiveType> archiveTypes,
                                       final PackageType packageType, final List<OperatingSystem> operatingSystems, final List<LibCType> libCTypes, final List<ReleaseStatus> releaseStatus, final List<TermOfSupport> termsOfSupport,
                                       final Bitness bitness, final Boolean javafxBundled, final Boolean withFxIfAvailable, final Boolean directlyDownloadable, final Latest latest, final List<Feature> features, final Boolean signatureAvailable,
                                       final Boolean freeToUseInProduction, final Verification tckTested, final Verification aqavitCertified, final List<Scope> distroScopes, final Match match, final List<Scope> pkgScopes) {
-        return getPkgsFromCache(versionNumber, null, comparison, jdkVersion, distributions, architectures, fpus, archiveTypes, packageType, operatingSystems, libCTypes, releaseStatus, termsOfSupport, bitness, javafxBundled, withFxIfAvailable, directlyDownloadable, latest, features, signatureAvailable, freeToUseInProduction, tckTested, aqavitCertified, distroScopes, match, pkgScopes);
+        return getPkgsFromCache(new PkgQuery(versionNumber, null, comparison, jdkVersion, distributions, architectures, fpus, archiveTypes, packageType, operatingSystems, libCTypes, releaseStatus, termsOfSupport, bitness, javafxBundled, withFxIfAvailable, directlyDownloadable, latest, features, signatureAvailable, freeToUseInProduction, tckTested, aqavitCertified, distroScopes, match, pkgScopes));
     }
 
     public List<Pkg> getPkgsFromCache(final VersionNumber versionNumber, final VersionNumber toVersionNumber, final Comparison comparison, final MajorVersion jdkVersion, final List<Distribution> distributions, final List<Architecture> architectures, final List<FPU> fpus, final List<ArchiveType> archiveTypes,
                                       final PackageType packageType, final List<OperatingSystem> operatingSystems, final List<LibCType> libCTypes, final List<ReleaseStatus> releaseStatus, final List<TermOfSupport> termsOfSupport,
                                       final Bitness bitness, final Boolean javafxBundled, final Boolean withFxIfAvailable, final Boolean directlyDownloadable, final Latest latest, final List<Feature> features, final Boolean signatureAvailable,
                                       final Boolean freeToUseInProduction, final Verification tckTested, final Verification aqavitCertified, final List<Scope> distroScopes, final Match match, final List<Scope> pkgScopes) {
+        return getPkgsFromCache(new PkgQuery(versionNumber, toVersionNumber, comparison, jdkVersion, distributions, architectures, fpus, archiveTypes, packageType, operatingSystems, libCTypes, releaseStatus, termsOfSupport, bitness, javafxBundled, withFxIfAvailable, directlyDownloadable, latest, features, signatureAvailable, freeToUseInProduction, tckTested, aqavitCertified, distroScopes, match, pkgScopes));
+    }
+
+    /**
+     * Returns the packages that match the given query. Results are cached per query and cache generation,
+     * so a query that was already answered since the last sync with the database is not evaluated again.
+     * @param query
+     * @return an unmodifiable list of the packages that match the given query sorted in Pkg.DEFAULT_ORDER
+     */
+    public List<Pkg> getPkgsFromCache(final PkgQuery query) { return getPkgsFromCache(query, CacheManager.INSTANCE.getSnapshot()); }
+
+    private List<Pkg> getPkgsFromCache(final PkgQuery query, final CacheSnapshot snapshot) {
+        final List<Pkg> cachedPkgs = queryCache.get(query, snapshot.getGeneration());
+        if (null != cachedPkgs) { return cachedPkgs; }
+
+        final List<Pkg> pkgsFound = Collections.unmodifiableList(executeQuery(query, snapshot.getPkgIndex()));
+        queryCache.put(query, pkgsFound, snapshot.getGeneration());
+        return pkgsFound;
+    }
+
+    /**
+     * Returns the strong ETag of the result of the given query in the given representation, which can be compared
+     * with the If-None-Match header of a request to answer it with 304 Not Modified without serializing the result
+     * @param query
+     * @param apiVersion Constants.API_VERSION_V2 or Constants.API_VERSION_V3
+     * @param outputFormat
+     * @return the strong ETag of the result of the given query in the given representation
+     */
+    public String getETag(final PkgQuery query, final String apiVersion, final OutputFormat outputFormat) {
+        final CacheSnapshot snapshot   = CacheManager.INSTANCE.getSnapshot();
+        final List<Object>  key        = List.of(query, apiVersion, outputFormat);
+        final String        cachedETag = eTagCache.get(key, snapshot.getGeneration());
+        if (null != cachedETag) { return cachedETag; }
+
+        final String eTag = snapshot.getETag(getPkgsFromCache(query, snapshot), apiVersion, outputFormat);
+        eTagCache.put(key, eTag, snapshot.getGeneration());
+        return eTag;
+    }
+
+
+    private List<Pkg> executeQuery(final PkgQuery query, final PkgIndex pkgIndex) {
+        final VersionNumber versionNumber   = query.getVersionNumber();
+        final VersionNumber toVersionNumber = query.getToVersionNumber();
+        final Comparison    comparison      = query.getComparison();
+        final Latest        latest          = query.getLatest();
 
         final OptionalInt nextButOneEA = Helper.getNextButOneEA();
         final int         latestEA     = nextButOneEA.isPresent() ? nextButOneEA.getAsInt() : MajorVersion.getLatest(true).getAsInt();
 
-        Collection<Pkg> selection = CacheManager.INSTANCE.pkgCache.getPkgs();
-        if (null != pkgScopes && !pkgScopes.isEmpty()) {
-            for (Scope scope : pkgScopes) {
-                switch (scope.getApiString()) {
-                    case "signature_available"     -> selection = selection.parallelStream().filter(pkg -> !pkg.getSignatureUri().isEmpty()).collect(Collectors.toList());
-                    case "signature_not_available" -> selection = selection.parallelStream().filter(pkg -> pkg.getSignatureUri().isEmpty()).collect(Collectors.toList());
-                }
-            }
-        }
-        Collection<Pkg> pkgSelection = selection;
+        // The query intersects the bitsets of all indexed criteria and only checks the remaining criteria per package.
+        // The index is sorted in Pkg.DEFAULT_ORDER and all filters keep that order, so the result needs no sorting.
+        final List<Pkg> candidates = query.getPkgs(pkgIndex);
         List<Pkg> pkgsFound;
         if (Comparison.EQUAL == comparison) {
             switch(latest) {
@@ -150,28 +151,11 @@ public enum DiscoService {
                 case ALL_OF_VERSION:
                     final VersionNumber maxNumber;
                     if (null == versionNumber || versionNumber.getFeature().isEmpty()) {
-                        Optional<Pkg> pkgWithMaxVersionNumber = pkgSelection.parallelStream()
-                                                                            .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                                                            .filter(pkg -> distributions.isEmpty() ? (pkg.getDistribution() != null && Distro.isBasedOnOpenJDK(pkg.getDistribution().getDistro())) : distributions.contains(pkg.getDistribution()))
-                                                                            .filter(pkg -> Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains))
-                                                                            .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                                                            .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                                                            .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                                                            .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                                                            .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                                                            .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                                                            .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                                                            .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                                                            .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                                                            .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                                                            .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                                                            .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                                                            .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                                                            .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                                                            .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                                                            .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                                                            .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                                                            .max(Comparator.comparing(Pkg::getSemver));
+                        final Set<Distro> distrosToCheck = EnumSet.noneOf(Distro.class);
+                        query.getDistrosMatchingAnyScope().stream().filter(distro -> !query.isAllDistributions() || Distro.isBasedOnOpenJDK(distro)).forEach(distrosToCheck::add);
+                        Optional<Pkg> pkgWithMaxVersionNumber = query.getPkgs(pkgIndex, distrosToCheck)
+                                                                     .parallelStream()
+                                                                     .max(Comparator.comparing(Pkg::getSemver));
                         if (pkgWithMaxVersionNumber.isPresent()) {
                             maxNumber = pkgWithMaxVersionNumber.get().getVersionNumber();
                         } else {
@@ -179,29 +163,10 @@ public enum DiscoService {
                         }
                     } else {
                         int featureVersion = versionNumber.getFeature().getAsInt();
-                        Optional<Pkg> pkgWithMaxVersionNumber = pkgSelection.parallelStream()
-                                                                            .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                                                            .filter(pkg -> distributions.isEmpty()                    ? pkg.getDistribution()        != null          : distributions.contains(pkg.getDistribution()))
-                                                                            .filter(pkg -> Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains))
-                                                                            .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                                                            .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                                                            .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                                                            .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                                                            .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                                                            .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                                                            .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                                                            .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                                                            .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                                                            .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                                                            .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                                                            .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                                                            .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                                                            .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                                                            .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                                                            .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                                                            .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                                                            .filter(pkg -> featureVersion     == pkg.getVersionNumber().getFeature().getAsInt())
-                                                                            .max(Comparator.comparing(Pkg::getSemver));
+                        Optional<Pkg> pkgWithMaxVersionNumber = query.getPkgs(pkgIndex, query.getDistrosMatchingAnyScope())
+                                                                     .parallelStream()
+                                                                     .filter(pkg -> featureVersion == pkg.getVersionNumber().getFeature().getAsInt())
+                                                                     .max(Comparator.comparing(Pkg::getSemver));
                         if (pkgWithMaxVersionNumber.isPresent()) {
                             maxNumber = pkgWithMaxVersionNumber.get().getVersionNumber();
                         } else {
@@ -209,259 +174,81 @@ public enum DiscoService {
                         }
                     }
                     if (Latest.OVERALL == latest) {
-                        pkgsFound = pkgSelection.parallelStream()
-                                                .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                                .filter(pkg -> distributions.isEmpty()                    ? pkg.getDistribution()        != null          : distributions.contains(pkg.getDistribution()))
-                                                .filter(pkg -> Match.ANY == match                         ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                                .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                                .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                                .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                                .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                                .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                                .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                                .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                                .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                                .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                                .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                                .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                                .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                                .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                                .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                                .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                                .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                                .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                                .filter(pkg -> pkg.getVersionNumber().compareTo(maxNumber) == 0)
-                                                .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                                .collect(Collectors.toList());
+                        pkgsFound = candidates.parallelStream()
+                                              .filter(pkg -> pkg.getVersionNumber().compareTo(maxNumber) == 0)
+                                              .collect(Collectors.toList());
                     } else {
-                        pkgsFound = pkgSelection.parallelStream()
-                                                .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                                .filter(pkg -> distributions.isEmpty()                    ? pkg.getDistribution()        != null          : distributions.contains(pkg.getDistribution()))
-                                                .filter(pkg -> Match.ANY == match                         ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                                .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                                .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                                .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                                .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                                .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                                .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                                .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                                .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                                .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                                .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                                .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                                .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                                .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                                .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                                .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                                .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                                .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                                .filter(pkg -> (pkg.getVersionNumber().getFeature().getAsInt() >= maxNumber.getFeature().getAsInt() && pkg.getVersionNumber().compareTo(maxNumber) <= 0))
-                                                .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                                .collect(Collectors.toList());
+                        pkgsFound = candidates.parallelStream()
+                                              .filter(pkg -> (pkg.getVersionNumber().getFeature().getAsInt() >= maxNumber.getFeature().getAsInt() && pkg.getVersionNumber().compareTo(maxNumber) <= 0))
+                                              .collect(Collectors.toList());
                     }
                     break;
                 case PER_DISTRIBUTION:
-                    List<Distribution> distributionsToCheck;
-                    switch(match) {
-                        case ALL:
-                            distributionsToCheck = distributions.isEmpty() ? Distro.getDistributions().stream().filter(distribution -> Constants.SCOPE_LOOKUP.get(distribution.getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains)).collect(Collectors.toList()) : distributions.stream().filter(distribution -> Constants.SCOPE_LOOKUP.get(distribution.getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains)).collect(Collectors.toList());
-                            break;
-                        case ANY:
-                        default:
-                            distributionsToCheck = distributions.isEmpty() ? Distro.getDistributions().stream().filter(distribution -> Constants.SCOPE_LOOKUP.get(distribution.getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains)).collect(Collectors.toList()) : distributions.stream().filter(distribution -> Constants.SCOPE_LOOKUP.get(distribution.getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains)).collect(Collectors.toList());
-                            break;
-                    }
-
-                    List<Pkg>                        pkgs                      = new ArrayList<>();
-                    Map<Distribution, VersionNumber> maxVersionPerDistribution = new ConcurrentHashMap<>();
-                    distributionsToCheck.forEach(distro -> {
-                        Optional<Pkg> pkgFound = pkgSelection.parallelStream()
-                                                             .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                                             .filter(pkg -> pkg.getDistribution().equals(distro))
-                                                             .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                                             .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                                             .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                                             .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                                             .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                                             .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                                             .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                                             .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                                             .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                                             .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                                             .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                                             .max(Comparator.comparing(Pkg::getSemver));
-                        if (pkgFound.isPresent()) { maxVersionPerDistribution.put(distro, pkgFound.get().getVersionNumber()); }
-                    });
+                    // Find the max version per distribution in one pass (fpus, features and the residual criteria except the jdk version are not taken into account here)
+                    final Map<Distro, Pkg> maxPkgPerDistro = new EnumMap<>(Distro.class);
+                    query.getPkgsIgnoringFpusAndFeatures(pkgIndex)
+                         .forEach(pkg -> maxPkgPerDistro.merge(pkg.getDistribution().getDistro(), pkg, (pkg1, pkg2) -> pkg2.getSemver().compareTo(pkg1.getSemver()) > 0 ? pkg2 : pkg1));
 
-                    distributionsToCheck.forEach(distro -> pkgs.addAll(pkgSelection.parallelStream()
-                                                                                   .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                                                                   .filter(pkg -> pkg.getDistribution().equals(distro))
-                                                                                   .filter(pkg -> Match.ANY == match                         ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                                                                   .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                                                                   .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                                                                   .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                                                                   .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                                                                   .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                                                                   .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                                                                   .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                                                                   .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                                                                   .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                                                                   .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                                                                   .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                                                                   .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                                                                   .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                                                                   .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                                                                   .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                                                                   .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                                                                   .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                                                                   .filter(pkg -> pkg.getVersionNumber().equals(maxVersionPerDistribution.get(distro)))
-                                                                                   .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                                                                   .collect(Collectors.toList())));
-                    pkgsFound = pkgs;
+                    pkgsFound = candidates.parallelStream()
+                                          .filter(pkg -> maxPkgPerDistro.containsKey(pkg.getDistribution().getDistro()))
+                                          .filter(pkg -> pkg.getVersionNumber().equals(maxPkgPerDistro.get(pkg.getDistribution().getDistro()).getVersionNumber()))
+                                          .collect(Collectors.toList());
                     break;
                 case PER_VERSION:
-                    pkgsFound = pkgSelection.parallelStream()
-                                            .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                            .filter(pkg -> distributions.isEmpty()                    ? pkg.getDistribution()        != null          : distributions.contains(pkg.getDistribution()))
-                                            .filter(pkg -> Match.ANY == match                         ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                            .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                            .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                            .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                            .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                            .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                            .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                            .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                            .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                            .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                            .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                            .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                            .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                            .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                            .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                            .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                            .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                            .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                            .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == versionNumber.getFeature().getAsInt())
-                                            .filter(pkg -> pkg.isLatestBuildAvailable())
-                                            .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                            .collect(Collectors.toList());
+                    pkgsFound = candidates.parallelStream()
+                                          .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == versionNumber.getFeature().getAsInt())
+                                          .filter(pkg -> pkg.isLatestBuildAvailable())
+                                          .collect(Collectors.toList());
                     break;
                 case AVAILABLE:
-                    pkgsFound = pkgSelection.parallelStream()
-                                            .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                            .filter(pkg -> distributions.isEmpty()                    ? pkg.getDistribution()        != null          : distributions.contains(pkg.getDistribution()))
-                                            .filter(pkg -> Match.ANY == match                         ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                            .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                            .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                            .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                            .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                            .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                            .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                            .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                            .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                            .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                            .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                            .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                            .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                            .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                            .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                            .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                            .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                            .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                            .filter(pkg -> null               == versionNumber        ? pkg.getVersionNumber()       != null          : pkg.getVersionNumber().getFeature().getAsInt() == versionNumber.getFeature().getAsInt())
-                                            .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                            .collect(Collectors.toList());
-                    final Set<Pkg>  filteredPkgsFound = new CopyOnWriteArraySet<>();
-                    final List<Pkg> pkgsToCheck       = new CopyOnWriteArrayList<>(pkgsFound);
-                    final Set<Pkg>  diffPkgs          = new CopyOnWriteArraySet<>();
-                    pkgsFound.forEach(pkg -> {
-                        List<Pkg> pkgsWithDifferentUpdate = pkgsToCheck.parallelStream()
-                                                                       .filter(pkg1 -> pkg.equalsExceptUpdate(pkg1))
-                                                                       .collect(Collectors.toList());
-                        diffPkgs.addAll(pkgsWithDifferentUpdate);
-
-                        Pkg pkgWithMaxVersion = pkgsWithDifferentUpdate.parallelStream()
-                                                                       .max(Comparator.comparing(Pkg::getVersionNumber))
-                                                                       .orElse(null);
-                        if (null != pkgWithMaxVersion) {
-                            List<Pkg> pkgsWithSmallerVersions = filteredPkgsFound.parallelStream()
-                                                                                 .filter(pkg3 -> pkg3.equalsExceptUpdate(pkgWithMaxVersion))
-                                                                                 .filter(pkg3 -> pkg3.getSemver().compareTo(pkgWithMaxVersion.getSemver()) < 0)
-                                                                                 .collect(Collectors.toList());
-                            if (!pkgsWithSmallerVersions.isEmpty()) { filteredPkgsFound.removeAll(pkgsWithSmallerVersions); }
-                            filteredPkgsFound.add(pkgWithMaxVersion);
-                        }
-                    });
-
-                    pkgsToCheck.removeAll(diffPkgs);
-                    filteredPkgsFound.addAll(pkgsToCheck);
-
-                    pkgsFound.clear();
-                    pkgsFound.addAll(filteredPkgsFound);
+                    pkgsFound = getLatestAvailablePkgs(null == versionNumber ? candidates : candidates.parallelStream()
+                                                                                                     .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == versionNumber.getFeature().getAsInt())
+                                                                                                     .collect(Collectors.toList()));
                     break;
                 case NONE:
                 case NOT_FOUND:
                 default:
-                    pkgsFound = pkgSelection.parallelStream()
-                                            .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                            .filter(pkg -> distributions.isEmpty()                    ? pkg.getDistribution()        != null          : distributions.contains(pkg.getDistribution()))
-                                            .filter(pkg -> Match.ANY == match                         ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                            .filter(pkg -> null != versionNumber ? versionNumber.getBuild().isPresent() ? pkg.getVersionNumber().compareTo(versionNumber) == 0 : pkg.getVersionNumber().equals(versionNumber) : null != pkg.getVersionNumber())
-                                            .filter(pkg -> null               == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                            .filter(pkg -> architectures.isEmpty()                    ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                            .filter(pkg -> archiveTypes.isEmpty()                     ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                            .filter(pkg -> operatingSystems.isEmpty()                 ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                            .filter(pkg -> libCTypes.isEmpty()                        ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                            .filter(pkg -> termsOfSupport.isEmpty()                   ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                            .filter(pkg -> PackageType.NONE   == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                            .filter(pkg -> releaseStatus.isEmpty()                    ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                            .filter(pkg -> Bitness.NONE       == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                            .filter(pkg -> fpus.isEmpty()                             ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                            .filter(pkg -> null               == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                            .filter(pkg -> null               == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                            .filter(pkg -> features.isEmpty()                         ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                            .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                            .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                            .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                            .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                            .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                            .collect(Collectors.toList());
+                    if (null == versionNumber) {
+                        pkgsFound = candidates;
+                        break;
+                    }
+                    pkgsFound = candidates.parallelStream()
+                                          .filter(pkg -> versionNumber.getBuild().isPresent() ? pkg.getVersionNumber().compareTo(versionNumber) == 0 : pkg.getVersionNumber().equals(versionNumber))
+                                          .collect(Collectors.toList());
 
-                    if (null != versionNumber) {
-                        int featureVersion = versionNumber.getFeature().getAsInt();
-                        int interimVersion = versionNumber.getInterim().getAsInt();
-                        int updateVersion  = versionNumber.getUpdate().getAsInt();
-                        int patchVersion   = versionNumber.getPatch().getAsInt();
-                        if (0 != patchVersion) {
-                            // e.g. 11.N.N.3
-                            pkgsFound = pkgsFound.parallelStream()
-                                                 .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
-                                                 .filter(pkg -> pkg.getVersionNumber().getInterim().getAsInt() == interimVersion)
-                                                 .filter(pkg -> pkg.getVersionNumber().getUpdate().getAsInt()  == updateVersion)
-                                                 .filter(pkg -> pkg.getVersionNumber().getPatch().isPresent())
-                                                 .filter(pkg -> pkg.getVersionNumber().getPatch().getAsInt()   == patchVersion)
-                                                 .collect(Collectors.toList());
-                        } else if (0 != updateVersion) {
-                            // e.g. 11.N.2.N
-                            pkgsFound = pkgsFound.parallelStream()
-                                                 .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
-                                                 .filter(pkg -> pkg.getVersionNumber().getInterim().getAsInt() == interimVersion)
-                                                 .filter(pkg -> pkg.getVersionNumber().getUpdate().isPresent())
-                                                 .filter(pkg -> pkg.getVersionNumber().getUpdate().getAsInt()  == updateVersion)
-                                                 .collect(Collectors.toList());
-                        } else if (0 != interimVersion) {
-                            // e.g. 11.1.N.N
-                            pkgsFound = pkgsFound.parallelStream()
-                                                 .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
-                                                 .filter(pkg -> pkg.getVersionNumber().getInterim().isPresent())
-                                                 .filter(pkg -> pkg.getVersionNumber().getInterim().getAsInt() == interimVersion)
-                                                 .collect(Collectors.toList());
-                        } else {
-                            // e.g. 11.N.N.N
-                            pkgsFound = pkgsFound.parallelStream()
-                                                 .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
-                                                 .collect(Collectors.toList());
-                        }
+                    int featureVersion = versionNumber.getFeature().getAsInt();
+                    int interimVersion = versionNumber.getInterim().getAsInt();
+                    int updateVersion  = versionNumber.getUpdate().getAsInt();
+                    int patchVersion   = versionNumber.getPatch().getAsInt();
+                    if (0 != patchVersion) {
+                        // e.g. 11.N.N.3
+                        pkgsFound = pkgsFound.parallelStream()
+                                             .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
+                                             .filter(pkg -> pkg.getVersionNumber().getInterim().getAsInt() == interimVersion)
+                                             .filter(pkg -> pkg.getVersionNumber().getUpdate().getAsInt()  == updateVersion)
+                                             .filter(pkg -> pkg.getVersionNumber().getPatch().isPresent())
+                                             .filter(pkg -> pkg.getVersionNumber().getPatch().getAsInt()   == patchVersion)
+                                             .collect(Collectors.toList());
+                    } else if (0 != updateVersion) {
+                        // e.g. 11.N.2.N
+                        pkgsFound = pkgsFound.parallelStream()
+                                             .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
+                                             .filter(pkg -> pkg.getVersionNumber().getInterim().getAsInt() == interimVersion)
+                                             .filter(pkg -> pkg.getVersionNumber().getUpdate().isPresent())
+                                             .filter(pkg -> pkg.getVersionNumber().getUpdate().getAsInt()  == updateVersion)
+                                             .collect(Collectors.toList());
+                    } else if (0 != interimVersion) {
+                        // e.g. 11.1.N.N
+                        pkgsFound = pkgsFound.parallelStream()
+                                             .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
+                                             .filter(pkg -> pkg.getVersionNumber().getInterim().isPresent())
+                                             .filter(pkg -> pkg.getVersionNumber().getInterim().getAsInt() == interimVersion)
+                                             .collect(Collectors.toList());
+                    } else {
+                        // e.g. 11.N.N.N
+                        pkgsFound = pkgsFound.parallelStream()
+                                             .filter(pkg -> pkg.getVersionNumber().getFeature().getAsInt() == featureVersion)
+                                             .collect(Collectors.toList());
                     }
                     break;
             }
@@ -533,42 +320,74 @@ public enum DiscoService {
                     break;
             }
 
-            pkgsFound = pkgSelection.parallelStream()
-                                    .filter(pkg -> pkg.getDistribution().getDistro().isAvailable())
-                                    .filter(pkg -> distributions.isEmpty()                  ? pkg.getDistribution()        != null          : distributions.contains(pkg.getDistribution()))
-                                    .filter(pkg -> Match.ANY == match                         ? Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().anyMatch(distroScopes.stream().collect(toSet())::contains) : Constants.SCOPE_LOOKUP.get(pkg.getDistribution().getDistro()).stream().allMatch(distroScopes.stream().collect(toSet())::contains))
-                                    .filter(pkg -> null             == jdkVersion           ? pkg.getJdkVersion()          != null          : pkg.getJdkVersion().equals(jdkVersion))
-                                    .filter(pkg -> architectures.isEmpty()                  ? pkg.getArchitecture()        != null          : architectures.contains(pkg.getArchitecture()))
-                                    .filter(pkg -> archiveTypes.isEmpty()                   ? pkg.getArchiveType()         != null          : archiveTypes.contains(pkg.getArchiveType()))
-                                    .filter(pkg -> operatingSystems.isEmpty()               ? pkg.getOperatingSystem()     != null          : operatingSystems.contains(pkg.getOperatingSystem()))
-                                    .filter(pkg -> libCTypes.isEmpty()                      ? pkg.getLibCType()            != null          : libCTypes.contains(pkg.getLibCType()))
-                                    .filter(pkg -> termsOfSupport.isEmpty()                 ? pkg.getTermOfSupport()       != null          : termsOfSupport.contains(pkg.getTermOfSupport()))
-                                    .filter(pkg -> PackageType.NONE == packageType          ? pkg.getPackageType()         != packageType   : pkg.getPackageType()         == packageType)
-                                    .filter(pkg -> releaseStatus.isEmpty()                  ? pkg.getReleaseStatus()       != null          : releaseStatus.contains(pkg.getReleaseStatus()))
-                                    .filter(pkg -> Bitness.NONE     == bitness              ? pkg.getBitness()             != bitness       : pkg.getBitness()             == bitness)
-                                    .filter(pkg -> fpus.isEmpty()                           ? pkg.getFPU()                 != null          : fpus.contains(pkg.getFPU()))
-                                    .filter(pkg -> null             == javafxBundled        ? pkg.isJavaFXBundled()        != null          : pkg.isJavaFXBundled()        == javafxBundled)
-                                    .filter(pkg -> null             == directlyDownloadable ? pkg.isDirectlyDownloadable() != null          : pkg.isDirectlyDownloadable() == directlyDownloadable)
-                                    .filter(pkg -> features.isEmpty()                       ? pkg.getFeatures().isEmpty()                   : features.stream().anyMatch(feature -> pkg.getFeatures().contains(feature)))
-                                    .filter(pkg -> null == signatureAvailable ? (pkg != null) : !signatureAvailable ? (null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty()) : (pkg.getSignatureUri() != null && !pkg.getSignatureUri().isEmpty()))
-                                    .filter(pkg -> null == freeToUseInProduction              ? pkg.getFreeUseInProduction() != null          : pkg.getFreeUseInProduction())
-                                    .filter(pkg -> Verification.NONE == tckTested             ? pkg.getTckTested()           != null          : pkg.getTckTested()           == tckTested)
-                                    .filter(pkg -> Verification.NONE == aqavitCertified       ? pkg.getAqavitCertified()     != null          : pkg.getAqavitCertified()     == aqavitCertified)
-                                    .filter(greaterCheck)
-                                    .filter(smallerCheck)
-                                    .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                    .collect(Collectors.toList());
+            pkgsFound = candidates.parallelStream()
+                                  .filter(greaterCheck)
+                                  .filter(smallerCheck)
+                                  .collect(Collectors.toList());
         }
 
-        if (null == javafxBundled && null != withFxIfAvailable && withFxIfAvailable) {
-            List<Pkg> finalPkgsFound = pkgsFound;
-            List<Pkg> pkgsToRemove = pkgsFound.stream()
-                                              .filter(Predicate.not(Pkg::isJavaFXBundled))
-                                              .filter(pkg -> finalPkgsFound.stream().filter(p -> p.equalsExceptJavaFXAndPackageType(pkg)).count() > 0)
-                                              .collect(Collectors.toList());
-            pkgsFound.removeAll(pkgsToRemove);
+        if (null == query.getJavafxBundled() && Boolean.TRUE.equals(query.getWithFxIfAvailable())) {
+            pkgsFound = getPkgsWithFxIfAvailable(pkgsFound);
         }
 
-        return pkgsFound.parallelStream().sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed())).collect(Collectors.toList());
+        return pkgsFound;
+    }
+
+
+    /**
+     * Returns the latest package per update group from the given packages in their original order.
+     * Packages are grouped by PkgUpdateKey (the fields compared in Pkg.equalsExceptUpdate()) in one pass.
+     * Packages without other updates are kept, for all other groups the result is the same as the
+     * former pairwise comparison, which for each package of a group took the max version of the other
+     * packages of the group and replaced the packages with a smaller semver by it.
+     * @param pkgs Packages sorted in Pkg.DEFAULT_ORDER
+     * @return the latest package per update group from the given packages in their original order
+     */
+    public List<Pkg> getLatestAvailablePkgs(final List<Pkg> pkgs) {
+        final Map<PkgUpdateKey, List<Pkg>> groups = new LinkedHashMap<>();
+        for (Pkg pkg : pkgs) { groups.computeIfAbsent(new PkgUpdateKey(pkg), key -> new ArrayList<>(4)).add(pkg); }
+
+        final Set<Pkg> latestPkgs = new HashSet<>();
+        for (List<Pkg> group : groups.values()) {
+            if (group.size() == 1) {
+                latestPkgs.add(group.get(0));
+                continue;
+            }
+            // First pkg with the max version number in the group and first pkg with the max version number of the others
+            Pkg maxPkg = group.get(0);
+            for (Pkg pkg : group) {
+                if (pkg.getVersionNumber().compareTo(maxPkg.getVersionNumber()) > 0) { maxPkg = pkg; }
+            }
+            Pkg maxOfOthers = null;
+            for (Pkg pkg : group) {
+                if (pkg == maxPkg) { continue; }
+                if (null == maxOfOthers || pkg.getVersionNumber().compareTo(maxOfOthers.getVersionNumber()) > 0) { maxOfOthers = pkg; }
+            }
+            // For every pkg the max of the others is either maxPkg or (for maxPkg itself) maxOfOthers
+            final List<Pkg> latestOfGroup = new ArrayList<>(2);
+            for (Pkg pkg : group) {
+                final Pkg maxOfOthersForPkg = pkg == maxPkg ? maxOfOthers : maxPkg;
+                latestOfGroup.removeIf(latestPkg -> latestPkg != maxOfOthersForPkg && latestPkg.getSemver().compareTo(maxOfOthersForPkg.getSemver()) < 0);
+                if (!latestOfGroup.contains(maxOfOthersForPkg)) { latestOfGroup.add(maxOfOthersForPkg); }
+            }
+            latestPkgs.addAll(latestOfGroup);
+        }
+        return pkgs.stream().filter(latestPkgs::contains).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the given packages without the packages that don't bundle JavaFX but have a variant with bundled JavaFX
+     * in the given packages (see Pkg.equalsExceptJavaFXAndPackageType()). The variants are found in one pass by hashing
+     * the PkgJavaFXKey of all packages with bundled JavaFX.
+     * @param pkgs
+     * @return the given packages without packages that have a variant with bundled JavaFX in their original order
+     */
+    public List<Pkg> getPkgsWithFxIfAvailable(final List<Pkg> pkgs) {
+        final Set<PkgJavaFXKey> pkgsWithFx = new HashSet<>();
+        for (Pkg pkg : pkgs) {
+            if (!Boolean.FALSE.equals(pkg.isJavaFXBundled())) { pkgsWithFx.add(new PkgJavaFXKey(pkg)); }
+        }
+        if (pkgsWithFx.isEmpty()) { return pkgs; }
+        return pkgs.stream().filter(pkg -> pkg.isJavaFXBundled() || !pkgsWithFx.contains(new PkgJavaFXKey(pkg))).collect(Collectors.toList());
     }
 }
@@ -19,32 +19,51 @@
 
 package io.foojay.api;
 
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.MongoCredential;
 import com.mongodb.MongoException;
 import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import eu.hansolo.jdktools.util.OutputFormat;
 import io.foojay.api.pkg.Distro;
 import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
+import io.foojay.api.pkg.PkgCodec;
 import io.foojay.api.pkg.PkgField;
+import io.foojay.api.util.BatchResult;
+import io.foojay.api.util.BatchingQueue;
 import io.foojay.api.util.Config;
 import io.foojay.api.util.Constants;
+import io.foojay.api.util.CountryCodeResolver;
+import io.foojay.api.util.DownloadCounter;
 import io.foojay.api.util.EphemeralIdCache;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.Partition;
+import io.foojay.api.util.PkgSizeResolver;
 import io.foojay.api.util.State;
 import io.foojay.api.util.UpdaterState;
-import org.bson.BsonDocument;
-import org.bson.BsonString;
+import io.foojay.api.util.UrlMetadata;
+import org.bson.BsonType;
 import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.conversions.Bson;
 import org.bson.json.JsonParseException;
 import org.slf4j.Logger;
@@ -59,10 +78,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -71,8 +98,13 @@ import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
 import static com.mongodb.client.model.Filters.gte;
 import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
 import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Filters.ne;
+import static com.mongodb.client.model.Filters.not;
+import static com.mongodb.client.model.Filters.type;
 import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
 import static com.mongodb.client.model.Updates.set;
 import static io.foojay.api.util.Constants.API_VERSION_V3;
 import static io.foojay.api.util.Constants.COMMA;
@@ -87,6 +119,7 @@ public enum MongoDbManager {
     INSTANCE;
 
     private static final Logger                           LOGGER                         = LoggerFactory.getLogger(MongoDbManager.class);
+    private static final String                           FIELD_ID                       = "_id";
     private static final String                           FIELD_PACKAGE_ID               = "id";
     private static final String                           FIELD_EPHEMERAL_ID             = "ephemeral_id";
     private static final String                           FIELD_DOWNLOADS                = "downloads";
@@ -107,14 +140,45 @@ public enum MongoDbManager {
     private static final String                           FIELD_TERM_OF_SUPPORT          = "term_of_support";
     private static final String                           FIELD_RELEASE_STATUS           = "release_status";
     private static final String                           FIELD_MAINTAINED               = "maintained";
+    private static final String                           FIELD_URL                      = "url";
+    private static final String                           FIELD_SIZE                     = "size";
+    private static final String                           FIELD_STATUS                   = "status";
+    private static final String                           FIELD_ETAG                     = "etag";
+    private static final String                           FIELD_LAST_MODIFIED            = "lastmodified";
+    private static final String                           FIELD_VALIDATED_AT             = "validatedat";
     public final         EphemeralIdCache<String, String> ephemeralIdCache               = new EphemeralIdCache<>();
     private              MongoClient                      mongoClient;
     private              boolean                          connected;
     private              MongoDatabase                    database;
+    private final        ExecutorService                  loaderExecutor;
+    private final        DownloadCounter                  downloadCounter;
+    private final        ScheduledExecutorService         downloadFlusher;
+    private final        BatchingQueue<UserAgentDownload> userAgentDownloads;
 
 
     MongoDbManager() {
-        connected = false;
+        connected      = false;
+        loaderExecutor = Executors.newFixedThreadPool(Config.INSTANCE.getFoojayMongoDbLoaderThreads(), runnable -> {
+            final Thread thread = new Thread(runnable, "mongodb-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        downloadCounter = new DownloadCounter();
+        downloadFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "downloads-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long flushInterval = Config.INSTANCE.getFoojayApiDownloadsFlushInterval();
+        downloadFlusher.scheduleWithFixedDelay(this::scheduledFlushDownloadsPerDay, flushInterval, flushInterval, TimeUnit.SECONDS);
+        userAgentDownloads = new BatchingQueue<>("discoapi.downloads.useragent", Config.INSTANCE.getFoojayApiUserAgentQueueSize(), Config.INSTANCE.getFoojayApiUserAgentBatchSize(),
+                                                 Config.INSTANCE.getFoojayApiUserAgentBatchDelay(), this::insertDownloadsFromUserAgent);
+        // Write the remaining downloads on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            downloadFlusher.shutdown();
+            flushDownloadsPerDay();
+            userAgentDownloads.close(5000);
+        }, "downloads-flusher-shutdown"));
         // Set mongodb logger to SEVERE only.
         java.util.logging.Logger mongoLogger = java.util.logging.Logger.getLogger("org.mongodb.driver");
         mongoLogger.setLevel(Level.SEVERE);
@@ -134,6 +198,7 @@ public enum MongoDbManager {
                 mongoClient = MongoClients.create(MongoClientSettings.builder()
                                                                      .applyToClusterSettings(builder -> builder.hosts(Arrays.asList(new ServerAddress(Config.INSTANCE.getFoojayMongoDbUrl(), Config.INSTANCE.getFoojayMongoDbPort()))))
                                                                      .credential(credential)
+                                                                     .codecRegistry(CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(new PkgCodec()), MongoClientSettings.getDefaultCodecRegistry()))
                                                                      .build());
 
                 database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
@@ -142,11 +207,14 @@ public enum MongoDbManager {
 
                 if (!collectionExists(database, Constants.STATE_COLLECTION)) { database.createCollection(Constants.STATE_COLLECTION); }
                 if (!collectionExists(database, Constants.PACKAGES_COLLECTION)) { database.createCollection(Constants.PACKAGES_COLLECTION); }
+                // getPkgsForDistro() reads the packages of single distributions, without this index each read would scan the collection
+                database.getCollection(Constants.PACKAGES_COLLECTION).createIndex(Indexes.ascending(PkgField.DISTRIBUTION.fieldName()));
                 if (!collectionExists(database, Constants.EPHEMERAL_IDS_COLLECTION)) { database.createCollection(Constants.EPHEMERAL_IDS_COLLECTION); }
                 if (!collectionExists(database, Constants.DOWNLOADS_COLLECTION)) { database.createCollection(Constants.DOWNLOADS_COLLECTION); }
                 if (!collectionExists(database, Constants.DOWNLOADS_USER_AGENT_COLLECTION)) { database.createCollection(Constants.DOWNLOADS_USER_AGENT_COLLECTION); }
                 if (!collectionExists(database, Constants.DISTRO_UPDATES_COLLECTION)) { database.createCollection(Constants.DISTRO_UPDATES_COLLECTION); }
                 if (!collectionExists(database, Constants.SHEDLOCK_COLLECTION)) { database.createCollection(Constants.SHEDLOCK_COLLECTION); }
+                createUrlMetadataCollection();
 
                 updateEphemeralIds();
                 setState(State.IDLE);
@@ -343,107 +411,150 @@ public enum MongoDbManager {
     /**
      * Returns list of all packages in the packages collection
      * @return list of all packages in the packages collection
+     * @throws MongoException if the packages could not be loaded, so callers can keep the packages they already have
      */
     public List<Pkg> getPkgs() {
         final long start = System.currentTimeMillis();
         connect();
         if (!connected) {
-            LOGGER.debug("MongoDB not connected, returned empty list of packages");
-            return new ArrayList<>();
+            throw new MongoException("MongoDB not connected, packages could not be loaded");
         }
         if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
-            LOGGER.debug("Cannot return packages because FOOJAY_MONGODB_DATABASE environment variable was not set.");
-            return new ArrayList<>();
+            throw new MongoException("Cannot return packages because FOOJAY_MONGODB_DATABASE environment variable was not set.");
         }
         if (null == database) {
             LOGGER.error("Database is not set.");
             database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
         }
         if (null == Constants.PACKAGES_COLLECTION) {
-            LOGGER.error("Constants.BUNDLES_COLLECTION not set.");
-            return new ArrayList<>();
+            throw new MongoException("Constants.PACKAGES_COLLECTION not set.");
         };
         if (!collectionExists(database, Constants.PACKAGES_COLLECTION)) { database.createCollection(Constants.PACKAGES_COLLECTION); }
 
-        final MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        final List<Pkg>                 result     = new ArrayList<>();
-        final MongoCursor<Document>     cursor     = collection.find().iterator();
+        // Packages are decoded straight from bson by the PkgCodec, documents that could not be decoded are null.
+        // The collection is split in ranges of the always indexed _id which are read and decoded in parallel.
+        final MongoCollection<Pkg> collection = database.getCollection(Constants.PACKAGES_COLLECTION, Pkg.class);
+        final List<Bson>           filters    = getIdRangeFilters(database.getCollection(Constants.PACKAGES_COLLECTION), Config.INSTANCE.getFoojayMongoDbLoaderThreads());
+
+        final List<CompletableFuture<List<Pkg>>> futures = filters.stream()
+                                                                  .map(filter -> CompletableFuture.supplyAsync(() -> findPkgs(collection, filter), loaderExecutor))
+                                                                  .collect(Collectors.toList());
+        final List<Pkg>                          result  = new ArrayList<>();
         try {
-            while(cursor.hasNext()) {
-                Document document = cursor.next();
-                try {
-                    Pkg pkg = new Pkg(document.toJson());
-                    result.add(pkg);
-                } catch (Exception e) {
-                    LOGGER.error("Error creating pkg from {}", document.toJson());
-                }
-            }
-        } finally {
-            cursor.close();
+            futures.forEach(future -> result.addAll(future.join()));
+        } catch (CompletionException e) {
+            LOGGER.error("Error loading packages from mongodb. {}", e.getMessage());
+            throw e.getCause() instanceof MongoException ? (MongoException) e.getCause() : new MongoException("Error loading packages from mongodb", e.getCause());
         }
 
         LOGGER.debug("Successfully returned {} packages from mongodb in {} ms.", result.size(), (System.currentTimeMillis() - start));
         return result;
     }
 
+    /**
+     * Returns list of all packages of the given distribution in the packages collection
+     * @param distro
+     * @return list of all packages of the given distribution in the packages collection
+     * @throws MongoException if the packages could not be loaded, so callers can keep the packages they already have
+     */
     public List<Pkg> getPkgsForDistro(final Distro distro) {
         final long start = System.currentTimeMillis();
         connect();
         if (!connected) {
-            LOGGER.debug("MongoDB not connected, returned empty list of packages");
-            return new ArrayList<>();
+            throw new MongoException("MongoDB not connected, packages of " + distro.getApiString() + " could not be loaded");
         }
         if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
-            LOGGER.debug("Cannot return packages because FOOJAY_MONGODB_DATABASE environment variable was not set.");
-            return new ArrayList<>();
+            throw new MongoException("Cannot return packages because FOOJAY_MONGODB_DATABASE environment variable was not set.");
         }
         if (null == database) {
             LOGGER.error("Database is not set.");
             database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
         }
         if (null == Constants.PACKAGES_COLLECTION) {
-            LOGGER.error("Constants.BUNDLES_COLLECTION not set.");
-            return new ArrayList<>();
+            throw new MongoException("Constants.PACKAGES_COLLECTION not set.");
         };
         if (!collectionExists(database, Constants.PACKAGES_COLLECTION)) { database.createCollection(Constants.PACKAGES_COLLECTION); }
 
-        final MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        final List<Pkg>                 result     = new ArrayList<>();
-        final MongoCursor<Document>     cursor     = collection.find(eq(PkgField.DISTRIBUTION.fieldName(), distro.getApiString())).iterator();
+        final MongoCollection<Pkg> collection = database.getCollection(Constants.PACKAGES_COLLECTION, Pkg.class);
+        final List<Pkg>            result     = findPkgs(collection, eq(PkgField.DISTRIBUTION.fieldName(), distro.getApiString()));
+        LOGGER.debug("Successfully returned {} packages for distribution {} from mongodb in {} ms.", result.size(), distro.name(), (System.currentTimeMillis() - start));
+        return result;
+    }
+
+    /**
+     * Splits the given collection into the given number of ranges of _id. The boundaries are read from the _id index
+     * (covered queries), documents with an _id that is not an ObjectId are matched by an extra filter.
+     * @param collection
+     * @param numberOfRanges
+     * @return filters that match the ranges of _id that together cover the whole collection
+     */
+    private List<Bson> getIdRangeFilters(final MongoCollection<Document> collection, final int numberOfRanges) {
+        final List<Bson>   filters = new ArrayList<>();
+        final List<Object> bounds  = new ArrayList<>();
+        final long         count   = collection.estimatedDocumentCount();
+        final long         size    = Math.max(1, (count + numberOfRanges - 1) / numberOfRanges);
+        for (long skip = size ; skip < count && bounds.size() < numberOfRanges - 1 ; skip += size) {
+            final Document document = collection.find(type(FIELD_ID, BsonType.OBJECT_ID))
+                                                .projection(Projections.include(FIELD_ID))
+                                                .sort(Sorts.ascending(FIELD_ID))
+                                                .skip((int) skip)
+                                                .limit(1)
+                                                .first();
+            if (null == document) { break; }
+            bounds.add(document.get(FIELD_ID));
+        }
+        Object lowerBound = null;
+        for (Object upperBound : bounds) {
+            filters.add(null == lowerBound ? and(type(FIELD_ID, BsonType.OBJECT_ID), lt(FIELD_ID, upperBound)) : and(gte(FIELD_ID, lowerBound), lt(FIELD_ID, upperBound)));
+            lowerBound = upperBound;
+        }
+        filters.add(null == lowerBound ? type(FIELD_ID, BsonType.OBJECT_ID) : gte(FIELD_ID, lowerBound));
+        filters.add(not(type(FIELD_ID, BsonType.OBJECT_ID)));
+        return filters;
+    }
+
+    /**
+     * Reads all packages matching the given filter, only the fields that are used by the PkgCodec are fetched
+     * @param collection
+     * @param filter
+     * @return all packages matching the given filter
+     */
+    private List<Pkg> findPkgs(final MongoCollection<Pkg> collection, final Bson filter) {
+        final List<Pkg>        result = new ArrayList<>();
+        final MongoCursor<Pkg> cursor = collection.find(filter)
+                                                  .projection(Projections.fields(Projections.include(PkgCodec.FIELDS), Projections.excludeId()))
+                                                  .batchSize(Config.INSTANCE.getFoojayMongoDbBatchSize())
+                                                  .iterator();
         try {
             while(cursor.hasNext()) {
-                Document document = cursor.next();
-                try {
-                    Pkg pkg = new Pkg(document.toJson());
-                    result.add(pkg);
-                } catch (Exception e) {
-                    LOGGER.error("Error creating pkg from {}", document.toJson());
-                }
+                Pkg pkg = cursor.next();
+                if (null != pkg) { result.add(pkg); }
             }
         } finally {
             cursor.close();
         }
-        LOGGER.debug("Successfully returned {} packages for distribution {} from mongodb in {} ms.", result.size(), distro.name(), (System.currentTimeMillis() - start));
         return result;
     }
 
     /**
-     * Inserts given list of packages to packages collection
+     * Inserts given list of packages that are not in the packages collection yet, the packages are
+     * written in unordered bulk writes of FOOJAY_API_MONGODB_WRITE_BATCH_SIZE packages
      * @param pkgs
+     * @return the number of inserted and failed packages per batch
      */
-    public void insertAllPkgs(final Collection<Pkg> pkgs) {
+    public List<BatchResult> insertAllPkgs(final Collection<Pkg> pkgs) {
         connect();
         if (!connected) {
             LOGGER.debug("MongoDB not connected, no packages inserted");
-            return;
+            return new ArrayList<>();
         }
         if (null == pkgs || pkgs.isEmpty()) {
             LOGGER.debug("Packages are null or empty.");
-            return;
+            return new ArrayList<>();
         }
         if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
             LOGGER.debug("Packages not inserted because FOOJAY_MONGODB_DATABASE environment variable was not set.");
-            return;
+            return new ArrayList<>();
         }
         if (null == database) {
             LOGGER.error("Database is not set.");
@@ -451,51 +562,60 @@ public enum MongoDbManager {
         }
         if (null == Constants.PACKAGES_COLLECTION) {
             LOGGER.error("Constants.BUNDLES_COLLECTION not set.");
-            return;
+            return new ArrayList<>();
         }
         if (!collectionExists(database, Constants.PACKAGES_COLLECTION)) { database.createCollection(Constants.PACKAGES_COLLECTION); }
 
+        // Sizes of packages from the distributions are resolved asynchronously and have to be set before they are stored
+        PkgSizeResolver.INSTANCE.await(pkgs);
+
         final MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        final List<Document>            documents  = new ArrayList<>();
-        pkgs.stream()
-            .filter(pkg -> !pkg.getArchitecture().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getArchiveType().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getOperatingSystem().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getLibCType().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getPackageType().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getReleaseStatus().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getFilename().isEmpty())
-            .forEach(pkg -> {
+        final Partition<Pkg>            partition  = new Partition<>(getValidPkgs(pkgs), Config.INSTANCE.getFoojayMongoDbWriteBatchSize());
+        final List<BatchResult>         results    = new ArrayList<>();
+        for (int i = 0 ; i < partition.size() ; i++) {
+            final List<Pkg>   batch       = partition.get(i);
+            final Set<String> existingIds = new HashSet<>();
+            collection.find(in(FIELD_PACKAGE_ID, batch.stream().map(Pkg::getId).collect(Collectors.toList())))
+                      .projection(Projections.fields(Projections.include(FIELD_PACKAGE_ID), Projections.excludeId()))
+                      .forEach(document -> existingIds.add(document.getString(FIELD_PACKAGE_ID)));
+
+            final List<WriteModel<Document>> models = new ArrayList<>();
+            int failed = 0;
+            for (Pkg pkg : batch) {
+                if (!existingIds.add(pkg.getId())) { continue; }
                 try {
-                    long count = collection.countDocuments(new BsonDocument(FIELD_PACKAGE_ID, new BsonString(pkg.getId())));
-                    if (count == 0) { documents.add(Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED, API_VERSION_V3))); }
+                    models.add(new InsertOneModel<>(Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED, API_VERSION_V3))));
                 } catch (JsonParseException e) {
                     LOGGER.error("Error parsing json when adding package {}. {}", pkg.getId(), e);
+                    failed++;
                 }
-            });
-
-        collection.insertMany(documents);
-        LOGGER.debug("Successfully inserted {} packages to mongodb.", pkgs.size());
+            }
+            results.add(bulkWrite(collection, models, i, failed));
+        }
+        if (BatchResult.getInserted(results) + BatchResult.getModified(results) > 0) { setLastUpdateForDistrosOf(pkgs); }
+        LOGGER.debug("Successfully inserted {} packages to mongodb ({} failed).", BatchResult.getInserted(results), BatchResult.getFailed(results));
+        return results;
     }
 
     /**
-     * Upsert the given list of packages to the packages collection where existing packages will be updated
+     * Upsert the given list of packages to the packages collection where existing packages will be updated,
+     * the packages are written in unordered bulk writes of FOOJAY_API_MONGODB_WRITE_BATCH_SIZE packages
      * @param pkgs
-     * @return true when packages have been added successfully
+     * @return the number of inserted, modified and failed packages per batch
      */
-    public boolean upsertPkgs(final Collection<Pkg> pkgs) {
+    public List<BatchResult> upsertPkgs(final Collection<Pkg> pkgs) {
         connect();
         if (!connected) {
             LOGGER.debug("MongoDB not connected, no packages added");
-            return false;
+            return new ArrayList<>();
         }
         if (null == pkgs || pkgs.isEmpty()) {
             LOGGER.debug("Packages are null or empty.");
-            return false;
+            return new ArrayList<>();
         }
         if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
             LOGGER.debug("New packages not added because FOOJAY_MONGODB_DATABASE environment variable was not set.");
-            return false;
+            return new ArrayList<>();
         }
         if (null == database) {
             LOGGER.error("Database is not set.");
@@ -503,30 +623,73 @@ public enum MongoDbManager {
         }
         if (null == Constants.PACKAGES_COLLECTION) {
             LOGGER.error("Constants.PACKAGES_COLLECTION not set.");
-            return false;
+            return new ArrayList<>();
         }
         if (!collectionExists(database, Constants.PACKAGES_COLLECTION)) { database.createCollection(Constants.PACKAGES_COLLECTION); }
 
-        MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        ReplaceOptions replaceOptions = new ReplaceOptions().upsert(true);
-        pkgs.stream()
-            .filter(pkg -> !pkg.getArchitecture().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getArchiveType().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getOperatingSystem().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getLibCType().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getPackageType().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getReleaseStatus().getApiString().isEmpty())
-            .filter(pkg -> !pkg.getFilename().isEmpty())
-            .forEach(pkg -> {
-            try {
-                Document document = Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED, API_VERSION_V3));
-                collection.replaceOne(eq(FIELD_PACKAGE_ID, pkg.getId()), document, replaceOptions);
-            } catch (JsonParseException e) {
-                LOGGER.error("Error parsing json when adding package {}. {}", pkg.getId(), e.getMessage());
+        // Sizes of packages from the distributions are resolved asynchronously and have to be set before they are stored
+        PkgSizeResolver.INSTANCE.await(pkgs);
+
+        final MongoCollection<Document> collection     = database.getCollection(Constants.PACKAGES_COLLECTION);
+        final ReplaceOptions            replaceOptions = new ReplaceOptions().upsert(true);
+        final Partition<Pkg>            partition      = new Partition<>(getValidPkgs(pkgs), Config.INSTANCE.getFoojayMongoDbWriteBatchSize());
+        final List<BatchResult>         results        = new ArrayList<>();
+        for (int i = 0 ; i < partition.size() ; i++) {
+            final List<WriteModel<Document>> models = new ArrayList<>();
+            int failed = 0;
+            for (Pkg pkg : partition.get(i)) {
+                try {
+                    models.add(new ReplaceOneModel<>(eq(FIELD_PACKAGE_ID, pkg.getId()), Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED, API_VERSION_V3)), replaceOptions));
+                } catch (JsonParseException e) {
+                    LOGGER.error("Error parsing json when adding package {}. {}", pkg.getId(), e.getMessage());
+                    failed++;
+                }
             }
-        });
-        LOGGER.debug("Successfully added {} new packages to mongodb.", pkgs.size());
-        return true;
+            results.add(bulkWrite(collection, models, i, failed));
+        }
+        if (BatchResult.getInserted(results) + BatchResult.getModified(results) > 0) { setLastUpdateForDistrosOf(pkgs); }
+        LOGGER.debug("Successfully upserted packages to mongodb ({} inserted, {} modified, {} failed).", BatchResult.getInserted(results), BatchResult.getModified(results), BatchResult.getFailed(results));
+        return results;
+    }
+
+    /**
+     * Returns the packages that contain all fields that are needed to store them in the packages collection
+     * @param pkgs
+     * @return the packages that contain all fields that are needed to store them in the packages collection
+     */
+    private List<Pkg> getValidPkgs(final Collection<Pkg> pkgs) {
+        return pkgs.stream()
+                   .filter(pkg -> !pkg.getArchitecture().getApiString().isEmpty())
+                   .filter(pkg -> !pkg.getArchiveType().getApiString().isEmpty())
+                   .filter(pkg -> !pkg.getOperatingSystem().getApiString().isEmpty())
+                   .filter(pkg -> !pkg.getLibCType().getApiString().isEmpty())
+                   .filter(pkg -> !pkg.getPackageType().getApiString().isEmpty())
+                   .filter(pkg -> !pkg.getReleaseStatus().getApiString().isEmpty())
+                   .filter(pkg -> !pkg.getFilename().isEmpty())
+                   .collect(Collectors.toList());
+    }
+
+    /**
+     * Executes the given models as one unordered bulk write, failing documents do not stop the others from being written
+     * @param collection
+     * @param models
+     * @param batch
+     * @param failed Number of documents of the batch that already failed before the write
+     * @return the number of inserted, modified and failed documents of the batch
+     */
+    private BatchResult bulkWrite(final MongoCollection<Document> collection, final List<WriteModel<Document>> models, final int batch, final int failed) {
+        if (models.isEmpty()) { return new BatchResult(batch, 0, 0, failed); }
+        try {
+            final BulkWriteResult result = collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+            return new BatchResult(batch, result.getInsertedCount() + result.getUpserts().size(), result.getModifiedCount(), failed);
+        } catch (MongoBulkWriteException e) {
+            final BulkWriteResult result = e.getWriteResult();
+            LOGGER.error("Error writing batch {} to mongodb collection {}, {} documents failed. {}", batch, collection.getNamespace().getCollectionName(), e.getWriteErrors().size(), e.getMessage());
+            return new BatchResult(batch, result.getInsertedCount() + result.getUpserts().size(), result.getModifiedCount(), failed + e.getWriteErrors().size());
+        } catch (MongoException e) {
+            LOGGER.error("Error writing batch {} to mongodb collection {}. {}", batch, collection.getNamespace().getCollectionName(), e.getMessage());
+            return new BatchResult(batch, 0, 0, failed + models.size());
+        }
     }
 
     /**
@@ -567,6 +730,7 @@ public enum MongoDbManager {
                 LOGGER.error("Error when deleting package {}. {}", pkg.getId(), e.getMessage());
             }
         }
+        setLastUpdateForDistrosOf(pkgs);
         LOGGER.debug("Successfully deleted {} packages from mongodb.", pkgs.size());
         return true;
     }
@@ -716,7 +880,29 @@ public enum MongoDbManager {
         LOGGER.debug("Successfully updated no of downloads for id {}", pkgId);
     }
 
+    /**
+     * Queues the download of the given package for the given user-agent, the downloads are written in batches
+     * by a background thread. If the queue is full because the database is too slow the download will be dropped.
+     * @param pkgId
+     * @param userAgent
+     * @param countryCode
+     */
     public void addDownloadFromUserAgent(final String pkgId, final String userAgent, final String countryCode) {
+        userAgentDownloads.offer(new UserAgentDownload(pkgId, userAgent, countryCode, null, Instant.now().getEpochSecond()));
+    }
+
+    /**
+     * Queues the download of the given package for the given user-agent where the country code will be looked up
+     * for the given ip address by the background thread that writes the downloads, so the lookup doesn't block the caller
+     * @param pkgId
+     * @param userAgent
+     * @param ipAddress
+     */
+    public void addDownloadFromUserAgentForIpAddress(final String pkgId, final String userAgent, final String ipAddress) {
+        userAgentDownloads.offer(new UserAgentDownload(pkgId, userAgent, null, ipAddress, Instant.now().getEpochSecond()));
+    }
+
+    private void insertDownloadsFromUserAgent(final List<UserAgentDownload> downloads) {
         connect();
         if (!connected) {
             LOGGER.debug("MongoDB not connected, no packages updated");
@@ -736,18 +922,43 @@ public enum MongoDbManager {
         }
         if (!collectionExists(database, Constants.DOWNLOADS_USER_AGENT_COLLECTION)) { database.createCollection(Constants.DOWNLOADS_USER_AGENT_COLLECTION); }
 
-        Document document = new Document();
-        document.append(FIELD_PACKAGE_ID, pkgId);
-        document.append(FIELD_USER_AGENT, userAgent);
-        document.append(FIELD_COUNTRY_CODE, countryCode);
-        document.append(FIELD_TIMESTAMP, Instant.now().getEpochSecond());
-
-        database.getCollection(Constants.DOWNLOADS_USER_AGENT_COLLECTION).insertOne(document);
+        // Resolve the country codes of all ip addresses of the batch concurrently instead of one remote lookup after the other
+        final Map<String, CompletableFuture<String>> countryCodes = new HashMap<>();
+        for (UserAgentDownload download : downloads) {
+            if (null == download.countryCode) { countryCodes.computeIfAbsent(download.ipAddress, CountryCodeResolver.INSTANCE::getCountryCodeAsync); }
+        }
+        final List<Document> documents = new ArrayList<>(downloads.size());
+        for (UserAgentDownload download : downloads) {
+            Document document = new Document();
+            document.append(FIELD_PACKAGE_ID, download.pkgId);
+            document.append(FIELD_USER_AGENT, download.userAgent);
+            document.append(FIELD_COUNTRY_CODE, null == download.countryCode ? countryCodes.get(download.ipAddress).join() : download.countryCode);
+            document.append(FIELD_TIMESTAMP, download.timestamp);
+            documents.add(document);
+        }
+        database.getCollection(Constants.DOWNLOADS_USER_AGENT_COLLECTION).insertMany(documents, new InsertManyOptions().ordered(false));
 
-        LOGGER.debug("Successfully added download for id {} and user-agent {}", pkgId, userAgent);
+        LOGGER.debug("Successfully added {} downloads from user-agents", documents.size());
     }
 
+    /**
+     * Counts a download of the given distribution and major version for today, the downloads are only
+     * counted in memory and written to the database by flushDownloadsPerDay()
+     * @param distro
+     * @param majorVersion
+     */
     public void addDownloadToToday(final Distro distro, final int majorVersion) {
+        downloadCounter.increment(DateTimeFormatter.ISO_LOCAL_DATE.format(ZonedDateTime.now()), distro, majorVersion);
+    }
+
+    /**
+     * Writes the downloads per day that have been counted since the last flush to the database by
+     * incrementing the counters of each day in one atomic update. Downloads that could not be written
+     * will be written with the next flush.
+     */
+    public synchronized void flushDownloadsPerDay() {
+        if (downloadCounter.isEmpty()) { return; }
+
         connect();
         if (!connected) {
             LOGGER.debug("MongoDB not connected, downloads per distro not set.");
@@ -767,63 +978,45 @@ public enum MongoDbManager {
         }
         if (!collectionExists(database, Constants.DOWNLOADS_PER_DAY_COLLECTION)) { database.createCollection(Constants.DOWNLOADS_PER_DAY_COLLECTION); }
 
-        final String featureVersion = Integer.toString(majorVersion);
-        final String day            = DateTimeFormatter.ISO_LOCAL_DATE.format(ZonedDateTime.now());
+        // Drain only after all checks passed, the counters keep the downloads until they can be written
+        final Map<DownloadCounter.Key, Long> downloads = downloadCounter.drain();
+        if (downloads.isEmpty()) { return; }
 
         final MongoCollection<Document> collection = database.getCollection(Constants.DOWNLOADS_PER_DAY_COLLECTION);
-
-        Document dayDoc = collection.find(eq(FIELD_DAY, day)).first();
-        if (null == dayDoc) {
-            dayDoc = new Document();
-        }
-
-        Document distributionsDoc;
-        if (dayDoc.containsKey(FIELD_DISTRIBUTIONS)) {
-            distributionsDoc = (Document) dayDoc.get(FIELD_DISTRIBUTIONS);
-            Document distroDoc;
-            int     numberOfAllDownloads = 0;
-            Document versionsDoc;
-            int     downloadsPerVersion = 0;
-            if (distributionsDoc.containsKey(distro.getApiString())) {
-                distroDoc = (Document) distributionsDoc.get(distro.getApiString());
-                if (distroDoc.containsKey(FIELD_DOWNLOADS)) {
-                    numberOfAllDownloads = distroDoc.getInteger(FIELD_DOWNLOADS);
-                }
-                if (distroDoc.containsKey(FIELD_VERSION)) {
-                    versionsDoc = (Document) distroDoc.get(FIELD_VERSION);
-                    if (versionsDoc.containsKey(featureVersion)) {
-                        downloadsPerVersion = versionsDoc.getInteger(featureVersion);
-                    }
-                } else {
-                    versionsDoc = new Document();
-                }
-                versionsDoc.put(featureVersion, downloadsPerVersion + 1);
-            } else {
-                versionsDoc = new Document();
-                versionsDoc.put(featureVersion, downloadsPerVersion + 1);
-                distroDoc = new Document();
+        final Map<String, Map<DownloadCounter.Key, Long>> downloadsPerDay = downloads.entrySet().stream().collect(Collectors.groupingBy(entry -> entry.getKey().getDay(), Collectors.toMap(Entry::getKey, Entry::getValue)));
+        downloadsPerDay.forEach((day, downloadsOfDay) -> {
+            final Map<String, Long> downloadsPerDistro = new HashMap<>();
+            final List<Bson>        increments         = new ArrayList<>();
+            downloadsOfDay.forEach((key, count) -> {
+                final String distroPath = String.join(".", FIELD_DISTRIBUTIONS, key.getDistro().getApiString());
+                downloadsPerDistro.merge(distroPath, count, Long::sum);
+                increments.add(inc(String.join(".", distroPath, FIELD_VERSION, Integer.toString(key.getMajorVersion())), toNumber(count)));
+            });
+            downloadsPerDistro.forEach((distroPath, count) -> increments.add(inc(String.join(".", distroPath, FIELD_DOWNLOADS), toNumber(count))));
+            try {
+                collection.updateOne(eq(FIELD_DAY, day), combine(increments), new UpdateOptions().upsert(true));
+            } catch (MongoException e) {
+                LOGGER.error("Error adding downloads of day {} to database. {}", day, e.getMessage());
+                downloadsOfDay.forEach((key, count) -> downloadCounter.add(key.getDay(), key.getDistro(), key.getMajorVersion(), count));
             }
-            distroDoc.put(FIELD_DOWNLOADS, numberOfAllDownloads + 1);
-            distroDoc.put(FIELD_VERSION, versionsDoc);
-
-            distributionsDoc.append(distro.getApiString(), distroDoc);
-        } else {
-            Document versions = new Document();
-            versions.put(featureVersion, 1);
-
-            Document distroDoc = new Document();
-            distroDoc.put(FIELD_DOWNLOADS, 1);
-            distroDoc.put(FIELD_VERSION, versions);
+        });
+        LOGGER.debug("Successfully added {} downloads to database", downloads.values().stream().mapToLong(Long::longValue).sum());
+    }
 
-            distributionsDoc = new Document();
-            distributionsDoc.put(distro.getApiString(), distroDoc);
+    private void scheduledFlushDownloadsPerDay() {
+        try {
+            flushDownloadsPerDay();
+        } catch (Exception e) {
+            // An exception would cancel all following flushes
+            LOGGER.error("Error flushing downloads per day. {}", e.getMessage());
         }
-        dayDoc.put(day, distributionsDoc);
-
-        collection.updateOne(eq(FIELD_DAY, day), combine(set(FIELD_DISTRIBUTIONS, distributionsDoc)), new UpdateOptions().upsert(true));
-        LOGGER.debug("Successfully added download to distro {} to database", distro.getName());
     }
 
+    /**
+     * Downloads per day have always been stored as int32, so counts are only stored as int64 if they don't fit
+     */
+    private static Number toNumber(final long count) { return count > Integer.MAX_VALUE ? Long.valueOf(count) : Integer.valueOf((int) count); }
+
     public String getDownloadsPerDay(final Set<ZonedDateTime> days) {
         if (days.isEmpty()) {
             days.add(ZonedDateTime.of(2021, 9, 6, 12, 0, 0, 0, ZoneId.systemDefault()));
@@ -883,9 +1076,9 @@ public enum MongoDbManager {
         if (!collectionExists(database, Constants.PACKAGES_COLLECTION)) { database.createCollection(Constants.PACKAGES_COLLECTION); }
 
         MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        pkgs.forEach(pkg -> collection.updateOne(eq(FIELD_PACKAGE_ID, pkg.getId()), set(PkgField.LATEST_BUILD_AVAILABLE.fieldName(), false)));
+        final long modified = updateLatestBuildAvailable(collection, pkgs, false);
 
-        LOGGER.debug("Successfully updated latest build available for {} packages", pkgs.size());
+        LOGGER.debug("Successfully updated latest build available for {} packages ({} changed)", pkgs.size(), modified);
     }
 
     public Map<Distro, Instant> getLastUpdatesForDistros() {
@@ -1082,6 +1275,108 @@ public enum MongoDbManager {
         return true;
     }
 
+    /**
+     * Returns the cached metadata (size, status, ETag, Last-Modified) of all download urls by url
+     * @return the cached metadata of all download urls by url
+     */
+    public Map<String, UrlMetadata> getUrlMetadata() {
+        connect();
+        final Map<String, UrlMetadata> metadata = new HashMap<>();
+        if (!connected) {
+            LOGGER.debug("MongoDB not connected, returned empty map of url metadata");
+            return metadata;
+        }
+        if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
+            LOGGER.debug("Cannot return url metadata because FOOJAY_MONGODB_DATABASE environment variable was not set.");
+            return metadata;
+        }
+        if (null == database) {
+            LOGGER.error("Database is not set.");
+            database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
+        }
+        if (null == Constants.URL_METADATA_COLLECTION) {
+            LOGGER.error("Constants.URL_METADATA_COLLECTION not set.");
+            return metadata;
+        }
+        if (!collectionExists(database, Constants.URL_METADATA_COLLECTION)) { createUrlMetadataCollection(); }
+
+        final MongoCollection<Document> collection = database.getCollection(Constants.URL_METADATA_COLLECTION);
+        try {
+            collection.find().projection(Projections.excludeId()).batchSize(Config.INSTANCE.getFoojayMongoDbBatchSize()).forEach(document -> {
+                final String url = document.getString(FIELD_URL);
+                if (null == url) { return; }
+                metadata.put(url, new UrlMetadata(url, ((Number) document.get(FIELD_SIZE, -1L)).longValue(), ((Number) document.get(FIELD_STATUS, 0)).intValue(),
+                                                  document.getString(FIELD_ETAG), document.getString(FIELD_LAST_MODIFIED), ((Number) document.get(FIELD_VALIDATED_AT, 0L)).longValue()));
+            });
+        } catch (MongoException e) {
+            LOGGER.error("Error loading url metadata from mongodb. {}", e.getMessage());
+        }
+        return metadata;
+    }
+
+    /**
+     * Inserts or replaces the given url metadata in batches
+     * @param metadata
+     * @return the number of inserted, modified and failed documents per batch
+     */
+    public List<BatchResult> upsertUrlMetadata(final Collection<UrlMetadata> metadata) {
+        connect();
+        if (!connected) {
+            LOGGER.debug("MongoDB not connected, url metadata not stored");
+            return new ArrayList<>();
+        }
+        if (null == metadata || metadata.isEmpty()) {
+            LOGGER.debug("Url metadata is null or empty.");
+            return new ArrayList<>();
+        }
+        if (null == Config.INSTANCE.getFoojayMongoDbDatabase()) {
+            LOGGER.debug("Url metadata not stored because FOOJAY_MONGODB_DATABASE environment variable was not set.");
+            return new ArrayList<>();
+        }
+        if (null == database) {
+            LOGGER.error("Database is not set.");
+            database = mongoClient.getDatabase(Config.INSTANCE.getFoojayMongoDbDatabase());
+        }
+        if (null == Constants.URL_METADATA_COLLECTION) {
+            LOGGER.error("Constants.URL_METADATA_COLLECTION not set.");
+            return new ArrayList<>();
+        }
+        if (!collectionExists(database, Constants.URL_METADATA_COLLECTION)) { createUrlMetadataCollection(); }
+
+        final MongoCollection<Document> collection     = database.getCollection(Constants.URL_METADATA_COLLECTION);
+        final ReplaceOptions            replaceOptions = new ReplaceOptions().upsert(true);
+        final Partition<UrlMetadata>    partition      = new Partition<>(metadata, Config.INSTANCE.getFoojayMongoDbWriteBatchSize());
+        final List<BatchResult>         results        = new ArrayList<>();
+        for (int i = 0 ; i < partition.size() ; i++) {
+            final List<WriteModel<Document>> models = new ArrayList<>();
+            for (UrlMetadata entry : partition.get(i)) {
+                final Document document = new Document(FIELD_URL, entry.getUrl()).append(FIELD_SIZE, entry.getSize())
+                                                                                 .append(FIELD_STATUS, entry.getStatus())
+                                                                                 .append(FIELD_ETAG, entry.getETag())
+                                                                                 .append(FIELD_LAST_MODIFIED, entry.getLastModified())
+                                                                                 .append(FIELD_VALIDATED_AT, entry.getValidatedAt());
+                models.add(new ReplaceOneModel<>(eq(FIELD_URL, entry.getUrl()), document, replaceOptions));
+            }
+            results.add(bulkWrite(collection, models, i, 0));
+        }
+        LOGGER.debug("Successfully upserted url metadata to mongodb ({} inserted, {} modified, {} failed).", BatchResult.getInserted(results), BatchResult.getModified(results), BatchResult.getFailed(results));
+        return results;
+    }
+
+    /**
+     * Creates the url metadata collection if needed and makes sure it has a unique index on the url.
+     * The index keeps the upserts of upsertUrlMetadata() from scanning the collection and from
+     * inserting the same url twice when two upserts run concurrently.
+     */
+    private void createUrlMetadataCollection() {
+        if (!collectionExists(database, Constants.URL_METADATA_COLLECTION)) { database.createCollection(Constants.URL_METADATA_COLLECTION); }
+        try {
+            database.getCollection(Constants.URL_METADATA_COLLECTION).createIndex(Indexes.ascending(FIELD_URL), new IndexOptions().unique(true));
+        } catch (MongoException e) {
+            LOGGER.error("Error creating index on {} in {}. {}", FIELD_URL, Constants.URL_METADATA_COLLECTION, e.getMessage());
+        }
+    }
+
     public List<MajorVersion> getMajorVersions() {
         connect();
         if (!connected) {
@@ -1321,9 +1616,53 @@ public enum MongoDbManager {
         if (!collectionExists(database, Constants.PACKAGES_COLLECTION)) { database.createCollection(Constants.PACKAGES_COLLECTION); }
 
         MongoCollection<Document> collection = database.getCollection(Constants.PACKAGES_COLLECTION);
-        pkgs.forEach(pkg -> collection.updateOne(eq(FIELD_PACKAGE_ID, pkg.getId()), set(PkgField.LATEST_BUILD_AVAILABLE.fieldName(), pkg.isLatestBuildAvailable())));
+        final Map<Boolean, List<Pkg>> pkgsByValue = pkgs.stream().collect(Collectors.partitioningBy(Pkg::isLatestBuildAvailable));
+        final long modified = updateLatestBuildAvailable(collection, pkgsByValue.get(true), true) + updateLatestBuildAvailable(collection, pkgsByValue.get(false), false);
 
-        LOGGER.debug("Successfully synced latest build available for all packages in cache {}", pkgs.size());
+        LOGGER.debug("Successfully synced latest build available for all packages in cache {} ({} changed)", pkgs.size(), modified);
+    }
+
+    /**
+     * Sets latest_build_available of the given packages to the given value with one updateMany per batch.
+     * Only documents with a different value are matched, so unchanged packages are not written.
+     * The last update of each distribution with changed packages is set, so the caches reload it on their next sync.
+     * @param collection
+     * @param pkgs
+     * @param latestBuildAvailable
+     * @return the number of packages that have been changed
+     */
+    private long updateLatestBuildAvailable(final MongoCollection<Document> collection, final Collection<Pkg> pkgs, final boolean latestBuildAvailable) {
+        if (pkgs.isEmpty()) { return 0; }
+        final Map<Distro, Set<String>> idsByDistro = pkgs.stream()
+                                                         .filter(pkg -> null != pkg.getDistribution())
+                                                         .collect(Collectors.groupingBy(pkg -> pkg.getDistribution().getDistro(), Collectors.mapping(Pkg::getId, Collectors.toSet())));
+        long modified = 0;
+        for (Entry<Distro, Set<String>> entry : idsByDistro.entrySet()) {
+            long modifiedOfDistro = 0;
+            for (List<String> batch : new Partition<>(entry.getValue(), Config.INSTANCE.getFoojayMongoDbWriteBatchSize())) {
+                try {
+                    modifiedOfDistro += collection.updateMany(and(in(FIELD_PACKAGE_ID, batch), ne(PkgField.LATEST_BUILD_AVAILABLE.fieldName(), latestBuildAvailable)),
+                                                              set(PkgField.LATEST_BUILD_AVAILABLE.fieldName(), latestBuildAvailable)).getModifiedCount();
+                } catch (MongoException e) {
+                    LOGGER.error("Error updating latest build available for {} packages. {}", batch.size(), e.getMessage());
+                }
+            }
+            if (modifiedOfDistro > 0) { setLastUpdateForDistro(entry.getKey()); }
+            modified += modifiedOfDistro;
+        }
+        return modified;
+    }
+
+    /**
+     * Sets the last update of all distributions of the given packages, so the caches reload them on their next sync
+     * @param pkgs
+     */
+    private void setLastUpdateForDistrosOf(final Collection<Pkg> pkgs) {
+        pkgs.stream()
+            .filter(pkg -> null != pkg.getDistribution())
+            .map(pkg -> pkg.getDistribution().getDistro())
+            .distinct()
+            .forEach(this::setLastUpdateForDistro);
     }
 
     public boolean collectionExists(final MongoDatabase database, final String collectionName) {
@@ -1338,4 +1677,21 @@ public enum MongoDbManager {
         }
         return false;
     }
+
+
+    private static final class UserAgentDownload {
+        private final String pkgId;
+        private final String userAgent;
+        private final String countryCode;
+        private final String ipAddress;
+        private final long   timestamp;
+
+        UserAgentDownload(final String pkgId, final String userAgent, final String countryCode, final String ipAddress, final long timestamp) {
+            this.pkgId       = pkgId;
+            this.userAgent   = userAgent;
+            this.countryCode = countryCode;
+            this.ipAddress   = ipAddress;
+            this.timestamp   = timestamp;
+        }
+    }
 }
@@ -39,6 +39,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -343,10 +344,9 @@ public class AOJ_OPENJ9 implements Distribution {
 
                     installerPkg.setFreeUseInProduction(Boolean.TRUE);
 
-                    installerPkg.setSize(Helper.getFileSize(installerDownloadLink));
-
                     if (onlyNewPkgs) {
-                        if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(installerName)).filter(p -> p.getDirectDownloadUri().equals(installerDownloadLink)).count() == 0) {
+                        if (!CacheManager.INSTANCE.pkgCache.containsDownload(installerName, installerDownloadLink)) {
+                            PkgSizeResolver.INSTANCE.resolve(installerPkg, installerDownloadLink);
                             pkgs.add(installerPkg);
                         }
                     }
@@ -379,7 +379,7 @@ public class AOJ_OPENJ9 implements Distribution {
                 String withoutPrefix = packageName.replace("OpenJDK" + vNumber.getFeature().getAsInt() + "U", "");
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(packageName)).filter(p -> p.getDirectDownloadUri().equals(packageDownloadLink)).count() > 0) { continue; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(packageName, packageDownloadLink)) { continue; }
                 }
 
                 Pkg packagePkg = new Pkg();
@@ -420,7 +420,7 @@ public class AOJ_OPENJ9 implements Distribution {
 
                     packagePkg.setFreeUseInProduction(Boolean.TRUE);
 
-                    packagePkg.setSize(Helper.getFileSize(packageDownloadLink));
+                    PkgSizeResolver.INSTANCE.resolve(packagePkg, packageDownloadLink);
 
                     pkgs.add(packagePkg);
                 }
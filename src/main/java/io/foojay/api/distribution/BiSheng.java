@@ -38,6 +38,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -169,7 +170,7 @@ public class BiSheng implements Distribution {
                 VersionNumber   distroVersionNumber = vNumber;
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
                 }
 
                 Pkg pkg = new Pkg();
@@ -242,7 +243,7 @@ public class BiSheng implements Distribution {
 
                 pkg.setFreeUseInProduction(Boolean.TRUE);
 
-                pkg.setSize(Helper.getFileSize(downloadLink));
+                PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
                 pkgs.add(pkg);
             }
@@ -40,6 +40,7 @@ import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
 import io.foojay.api.util.Pair;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -200,7 +201,7 @@ public class Corretto implements Distribution {
             String filename = Helper.getFileNameFromText(url);
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(url)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, url)) { continue; }
             }
 
             String withoutPrefix = FILENAME_PREFIX_MATCHER.reset(filename).replaceAll("");
@@ -212,8 +213,6 @@ public class Corretto implements Distribution {
                 pkg.setSignatureUri(signatureUrisFound.get(filename));
             }
 
-            pkg.setSize(Helper.getFileSize(url));
-
             ArchiveType ext = ArchiveType.getFromFileName(filename);
             if (ArchiveType.NONE != archiveType && ext != archiveType) { continue; }
             pkg.setArchiveType(ext);
@@ -309,6 +308,8 @@ public class Corretto implements Distribution {
 
             pkg.setFreeUseInProduction(Boolean.TRUE);
 
+            PkgSizeResolver.INSTANCE.resolve(pkg, url);
+
             pkgs.add(pkg);
         }
 
@@ -316,7 +317,7 @@ public class Corretto implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         final String gaPackageUrl = "https://docs.aws.amazon.com/corretto/latest/corretto-";
         List<Pkg> pkgs = new ArrayList<>();
         CacheManager.INSTANCE.getMajorVersions()
@@ -350,7 +351,7 @@ public class Corretto implements Distribution {
             String filename = Helper.getFileNameFromText(fileHref.replaceAll("\"", ""));
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(Helper.getFileNameFromText(filename))).filter(p -> p.getDirectDownloadUri().equals(fileHref)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(Helper.getFileNameFromText(filename), fileHref)) { continue; }
             }
 
             Pkg pkg = new Pkg();
@@ -420,7 +421,7 @@ public class Corretto implements Distribution {
 
             pkg.setFreeUseInProduction(Boolean.TRUE);
 
-            pkg.setSize(Helper.getFileSize(fileHref));
+            PkgSizeResolver.INSTANCE.resolve(pkg, fileHref);
 
             pkgs.add(pkg);
         }
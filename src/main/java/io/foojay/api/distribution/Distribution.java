@@ -34,6 +34,7 @@ import eu.hansolo.jdktools.versioning.VersionNumber;
 import io.foojay.api.pkg.Distro;
 import io.foojay.api.pkg.Pkg;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -83,4 +84,11 @@ public interface Distribution {
     List<Pkg> getPkgFromJson(JsonObject jsonObj, VersionNumber versionNumber, boolean latest, OperatingSystem operatingSystem,
                              Architecture architecture, Bitness bitness, ArchiveType archiveType, PackageType packageType,
                              Boolean javafxBundled, ReleaseStatus releaseStatus, TermOfSupport termOfSupport, boolean onlyNewPkgs);
+
+    /**
+     * Returns all packages of the distribution, distributions that cannot be fetched at once return an empty list
+     * @param onlyNewPkgs Skip packages that are already in the cache
+     * @return all packages of the distribution or only the new ones
+     */
+    default List<Pkg> getAllPkgs(final boolean onlyNewPkgs) { return new ArrayList<>(); }
 }
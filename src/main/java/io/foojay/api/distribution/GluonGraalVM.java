@@ -41,6 +41,7 @@ import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.GithubTokenPool;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -183,7 +184,7 @@ public class GluonGraalVM implements Distribution {
             String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
             }
 
             Pkg pkg = new Pkg();
@@ -284,7 +285,7 @@ public class GluonGraalVM implements Distribution {
 
             pkg.setFreeUseInProduction(Boolean.TRUE);
 
-            pkg.setSize(Helper.getFileSize(downloadLink));
+            PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
             pkgs.add(pkg);
         }
@@ -314,7 +315,7 @@ public class GluonGraalVM implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         List<Pkg> pkgs = new ArrayList<>();
 
         final String pkgUrl = new StringBuilder(PACKAGE_URL).append("?per_page=100").toString();
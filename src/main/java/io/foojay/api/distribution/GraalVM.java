@@ -43,6 +43,7 @@ import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.GithubTokenPool;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -194,7 +195,7 @@ public class GraalVM implements Distribution {
             String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
             }
 
             Pkg pkg = new Pkg();
@@ -265,7 +266,7 @@ public class GraalVM implements Distribution {
 
             pkg.setFreeUseInProduction(Boolean.TRUE);
 
-            pkg.setSize(Helper.getFileSize(downloadLink));
+            PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
             pkgs.add(pkg);
         }
@@ -393,7 +394,7 @@ public class GraalVM implements Distribution {
                                                  final String checksumUri     = fileDownloadUri + ".sha256";
 
                                                  if (onlyNewPkgs) {
-                                                     if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(fileDownloadUri)).count() > 0) { return; }
+                                                     if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, fileDownloadUri)) { return; }
                                                  }
 
                                                  if (Helper.isUriValid(fileDownloadUri)) {
@@ -420,7 +421,7 @@ public class GraalVM implements Distribution {
                                                          pkg.setChecksumUri(checksumUri);
                                                          pkg.setChecksumType(HashAlgorithm.SHA256);
                                                      }
-                                                     pkg.setSize(Helper.getFileSize(fileDownloadUri));
+                                                     PkgSizeResolver.INSTANCE.resolve(pkg, fileDownloadUri);
 
                                                      pkgs.add(pkg);
                                                  }
@@ -485,7 +486,7 @@ public class GraalVM implements Distribution {
                                     pkg.setDirectlyDownloadable(true);
                                     pkg.setFreeUseInProduction(Boolean.TRUE);
                                     pkg.setDirectDownloadUri(fileDownloadUri);
-                                    pkg.setSize(Helper.getFileSize(fileDownloadUri));
+                                    PkgSizeResolver.INSTANCE.resolve(pkg, fileDownloadUri);
                                     pkg.setLatestBuildAvailable(latest);
 
                                     pkgsFound.add(pkg);
@@ -40,6 +40,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -270,7 +271,7 @@ public class Liberica implements Distribution {
         Integer       buildVersion  = jsonObj.get(FIELD_BUILD_VERSION).getAsInt();
 
         if (onlyNewPkgs) {
-            if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { return pkgs; }
+            if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { return pkgs; }
         }
 
         dNumber.setBuild(buildVersion);
@@ -385,7 +386,7 @@ public class Liberica implements Distribution {
             pkg.setChecksumType(hash.isEmpty() ? HashAlgorithm.NONE : HashAlgorithm.SHA1);
         }
 
-        pkg.setSize(Helper.getFileSize(downloadLink));
+        PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
         pkgs.add(pkg);
 
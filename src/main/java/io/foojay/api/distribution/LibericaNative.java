@@ -42,6 +42,7 @@ import io.foojay.api.pkg.Distro;
 import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -192,7 +193,7 @@ public class LibericaNative implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         final List<Pkg>           pkgsFound = new ArrayList<>();
         final String              apiUrl    = "https://api.bell-sw.com/v1/nik/releases?bundle-type=standard&components=liberica&fields=bitness,components,os,downloadUrl,LTS,bundleType,packageType,version,filename,size,GA,architecture&components=nik";
         final Map<String, String> headers   = new HashMap<>();
@@ -294,7 +295,6 @@ public class LibericaNative implements Distribution {
                                 return;
                             } else {
                                 pkg.setDirectDownloadUri(downloadLink);
-                                if (pkg.getSize() == 0) { pkg.setSize(Helper.getFileSize(downloadLink)); }
                                 }
                         } else {
                             return;
@@ -358,13 +358,11 @@ public class LibericaNative implements Distribution {
                         }
 
                         if (onlyNewPkgs) {
-                            if (CacheManager.INSTANCE.pkgCache.getPkgs()
-                                                              .stream()
-                                                              .filter(p -> p.getDirectDownloadUri().equals(pkg.getDirectDownloadUri()))
-                                                              .filter(p -> p.getFilename().equals(pkg.getFilename()))
-                                                              .findFirst().isPresent()) { return; }
+                            if (CacheManager.INSTANCE.pkgCache.containsDownload(pkg.getFilename(), pkg.getDirectDownloadUri())) { return; }
                         }
 
+                        if (pkg.getSize() == 0) { PkgSizeResolver.INSTANCE.resolve(pkg, pkg.getDirectDownloadUri()); }
+
                         if (pkgJsonObj.has(FIELD_SHA1)) {
                             String hash = pkgJsonObj.get(FIELD_SHA1).getAsString();
                             pkg.setChecksum(hash.isEmpty() ? "" : hash);
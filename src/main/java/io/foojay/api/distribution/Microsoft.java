@@ -34,6 +34,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -143,7 +144,7 @@ public class Microsoft implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         List<Pkg> pkgs = new ArrayList<>();
         try {
             String htmlCurrentPkgs = Helper.getTextFromUrl(PACKAGE_URL);
@@ -175,7 +176,7 @@ public class Microsoft implements Distribution {
             if (filename.contains("debugsymbols") || filename.startsWith("jdk") || filename.contains("sources") || filename.endsWith("sig")) { continue; }
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(href)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, href)) { continue; }
             }
 
             final String          withoutPrefix   = filename.replace("microsoft-", "");
@@ -256,7 +257,7 @@ public class Microsoft implements Distribution {
             pkg.setPackageType(packageType);
             pkg.setOperatingSystem(operatingSystem);
             pkg.setFreeUseInProduction(Boolean.TRUE);
-            pkg.setSize(Helper.getFileSize(href));
+            PkgSizeResolver.INSTANCE.resolve(pkg, href);
 
             pkgs.add(pkg);
         }
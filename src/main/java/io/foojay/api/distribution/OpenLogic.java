@@ -37,6 +37,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -163,7 +164,7 @@ public class OpenLogic implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         List<Pkg> pkgs = new ArrayList<>();
 
         List<String> pkgUrls = new ArrayList<>();
@@ -217,7 +218,7 @@ public class OpenLogic implements Distribution {
             String filename = Helper.getFileNameFromText(fileHref.replaceAll("\"", ""));
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(fileHref)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, fileHref)) { continue; }
             }
 
             Pkg pkg = new Pkg();
@@ -286,7 +287,7 @@ public class OpenLogic implements Distribution {
 
             pkg.setFreeUseInProduction(Boolean.TRUE);
 
-            pkg.setSize(Helper.getFileSize(fileHref));
+            PkgSizeResolver.INSTANCE.resolve(pkg, fileHref);
 
             pkgs.add(pkg);
         }
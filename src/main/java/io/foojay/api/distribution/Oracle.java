@@ -39,6 +39,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -159,7 +160,7 @@ public class Oracle implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         List<Pkg> pkgs = new ArrayList<>();
 
         // Load jdk properties
@@ -390,7 +391,7 @@ public class Oracle implements Distribution {
                                                  final String checksumUri     = fileDownloadUri + ".sha256";
 
                                                  if (onlyNewPkgs) {
-                                                     if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(fileDownloadUri)).count() > 0) { return; }
+                                                     if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, fileDownloadUri)) { return; }
                                                  }
 
                                                  if (Helper.isUriValid(fileDownloadUri)) {
@@ -417,7 +418,7 @@ public class Oracle implements Distribution {
                                                          pkg.setChecksumUri(checksumUri);
                                                          pkg.setChecksumType(HashAlgorithm.SHA256);
                                                      }
-                                                     pkg.setSize(Helper.getFileSize(fileDownloadUri));
+                                                     PkgSizeResolver.INSTANCE.resolve(pkg, fileDownloadUri);
                                                      if (filename.contains("hflt")) {
                                                          pkg.setFPU(FPU.HARD_FLOAT);
                                                      }
@@ -44,13 +44,13 @@ import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.GithubTokenPool;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.StringReader;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -272,7 +272,7 @@ public class OracleOpenJDK implements Distribution {
                 String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
                 }
 
                 Pkg pkg = new Pkg();
@@ -378,7 +378,7 @@ public class OracleOpenJDK implements Distribution {
 
                 pkg.setFreeUseInProduction(Boolean.TRUE);
 
-                pkg.setSize(Helper.getFileSize(downloadLink));
+                PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
                 pkgs.add(pkg);
             }
@@ -420,7 +420,7 @@ public class OracleOpenJDK implements Distribution {
                 String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
                 }
 
                 Pkg pkg = new Pkg();
@@ -504,7 +504,7 @@ public class OracleOpenJDK implements Distribution {
 
                 pkg.setFreeUseInProduction(Boolean.TRUE);
 
-                pkg.setSize(Helper.getFileSize(downloadLink));
+                PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
                 pkgs.add(pkg);
             }
@@ -555,7 +555,7 @@ public class OracleOpenJDK implements Distribution {
                 String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
                 }
 
                 Pkg pkg = new Pkg();
@@ -635,7 +635,7 @@ public class OracleOpenJDK implements Distribution {
                 pkg.setOperatingSystem(os);
 
                 pkg.setFreeUseInProduction(Boolean.TRUE);
-                pkg.setSize(Helper.getFileSize(downloadLink));
+                PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
                 List<Feature> features = new ArrayList<>();
                 features.add(Feature.CRAC);
                 pkg.setFeatures(features);
@@ -688,7 +688,7 @@ public class OracleOpenJDK implements Distribution {
         return pkgs;
     }
 
-    public Collection<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         Map<String, Pkg> pkgMap = new HashMap<>();
 
         // Get all pkgs from jdk.java.not and jdk.java.net/archive
@@ -699,12 +699,12 @@ public class OracleOpenJDK implements Distribution {
             final HttpResponse<String> response = Helper.get(PKGS_PROPERTIES);
             if (null == response) {
                 LOGGER.debug("No jdk properties found for {}", getName());
-                return pkgMap.values();
+                return new ArrayList<>(pkgMap.values());
             }
             final String propertiesText = response.body();
             if (propertiesText.isEmpty()) {
                 LOGGER.debug("jdk properties are empty for {}", getName());
-                return pkgMap.values();
+                return new ArrayList<>(pkgMap.values());
             }
             propertiesPkgs.load(new StringReader(propertiesText));
         } catch (Exception e) {
@@ -717,7 +717,7 @@ public class OracleOpenJDK implements Distribution {
             boolean isMusl      = false;
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { return; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { return; }
             }
 
             Pkg pkg = new Pkg();
@@ -815,7 +815,7 @@ public class OracleOpenJDK implements Distribution {
 
                 pkg.setFreeUseInProduction(Boolean.TRUE);
 
-                pkg.setSize(Helper.getFileSize(downloadLink));
+                PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
                 if (!pkgMap.containsKey(pkg)) { pkgMap.put(pkg.getId(), pkg); }
             }
@@ -901,7 +901,7 @@ public class OracleOpenJDK implements Distribution {
 
         pkg.setFreeUseInProduction(Boolean.TRUE);
 
-        pkg.setSize(Helper.getFileSize(downloadLink));
+        PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
         return pkg;
     }
@@ -926,7 +926,7 @@ public class OracleOpenJDK implements Distribution {
             String          checksumUri     = Helper.isUriValid(downloadLink + ".sha256") ? downloadLink + ".sha256" : "";
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
             }
 
             BUILD_NUMBER_MATCHER.reset(downloadLink);
@@ -970,7 +970,7 @@ public class OracleOpenJDK implements Distribution {
             }
 
             pkg.setFreeUseInProduction(Boolean.TRUE);
-            pkg.setSize(Helper.getFileSize(downloadLink));
+            PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
             pkgs.add(pkg);
         }
 
@@ -41,6 +41,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -201,7 +202,7 @@ public class SAPMachine implements Distribution {
             String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
             }
 
             Pkg pkg = new Pkg();
@@ -293,7 +294,6 @@ public class SAPMachine implements Distribution {
             }
             pkg.setOperatingSystem(os);
             pkg.setFreeUseInProduction(Boolean.TRUE);
-            pkg.setSize(Helper.getFileSize(downloadLink));
 
             if (ReleaseStatus.GA == pkg.getReleaseStatus() && Helper.isLTS(pkg.getMajorVersion())) {
                 pkg.setTckTested(Verification.YES);
@@ -301,6 +301,7 @@ public class SAPMachine implements Distribution {
             }
 
             if (pkg.getVersionNumber().getInterim().isPresent() && pkg.getVersionNumber().getInterim().getAsInt() != 0) { continue; }
+            PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
             pkgs.add(pkg);
         }
 
@@ -343,7 +344,7 @@ public class SAPMachine implements Distribution {
                 final String        downloadLink  = assetJsonObj.get("browser_download_url").getAsString();
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
                 }
 
                 OperatingSystem operatingSystem = Constants.OPERATING_SYSTEM_LOOKUP.entrySet()
@@ -425,7 +426,6 @@ public class SAPMachine implements Distribution {
                 pkg.setPackageType(packageType);
                 pkg.setOperatingSystem(operatingSystem);
                 pkg.setFreeUseInProduction(Boolean.TRUE);
-                pkg.setSize(Helper.getFileSize(downloadLink));
 
                 if (ReleaseStatus.GA == pkg.getReleaseStatus() && Helper.isLTS(pkg.getMajorVersion())) {
                     pkg.setTckTested(Verification.YES);
@@ -433,6 +433,7 @@ public class SAPMachine implements Distribution {
                 }
 
                 if (pkg.getVersionNumber().getInterim().isPresent() && pkg.getVersionNumber().getInterim().getAsInt() != 0) { continue; }
+                PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
                 pkgs.add(pkg);
             }
         }
@@ -545,7 +546,7 @@ public class SAPMachine implements Distribution {
                                         final String filename     = Helper.getFileNameFromText(downloadLink);
                                         if (null == filename || filename.isEmpty() || filename.endsWith(Constants.FILE_ENDING_TXT) || filename.endsWith(Constants.FILE_ENDING_SYMBOLS_TAR_GZ) || filename.contains("beta") || filename.contains("internal")) { continue; }
                                         if (onlyNewPkgs) {
-                                            if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                                            if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
                                         }
                                         Pkg          pkg          = new Pkg();
                                         pkg.setDistribution(Distro.SAP_MACHINE.get());
@@ -610,8 +611,8 @@ public class SAPMachine implements Distribution {
                                             pkg.setTckCertUri("https://github.com/SAP/SapMachine/wiki/Frequently-Asked-Questions#Are-SapMachine-builds-verified-by-the-Java-Compatibility-Kit-JCK");
                                         }
 
-                                        pkg.setSize(Helper.getFileSize(downloadLink));
                                         if (pkg.getVersionNumber().getInterim().isPresent() && pkg.getVersionNumber().getInterim().getAsInt() != 0) { continue; }
+                                        PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
                                         pkgs.add(pkg);
                                     }
                                 }
@@ -633,7 +634,7 @@ public class SAPMachine implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         List<Pkg> pkgs = new ArrayList<>();
         try {
             for (String packageUrl : PACKAGE_URLS) {
@@ -719,7 +720,7 @@ public class SAPMachine implements Distribution {
 
             final String downloadLink = "https://github.com" + href;
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
             }
 
             Pkg pkg = new Pkg();
@@ -752,8 +753,8 @@ public class SAPMachine implements Distribution {
                 pkg.setTckCertUri("https://github.com/SAP/SapMachine/wiki/Frequently-Asked-Questions#Are-SapMachine-builds-verified-by-the-Java-Compatibility-Kit-JCK");
             }
 
-            pkg.setSize(Helper.getFileSize(pkg.getDirectDownloadUri()));
             if (pkg.getVersionNumber().getInterim().isPresent() && pkg.getVersionNumber().getInterim().getAsInt() != 0) { continue; }
+            PkgSizeResolver.INSTANCE.resolve(pkg, pkg.getDirectDownloadUri());
             pkgs.add(pkg);
         }
 
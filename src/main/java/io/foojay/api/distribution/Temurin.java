@@ -41,6 +41,7 @@ import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.GithubTokenPool;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -325,14 +326,14 @@ public class Temurin implements Distribution {
                     installerPkg.setChecksumUri(checksumLink.isEmpty()  ? ""                 : checksumLink);
                     installerPkg.setChecksumType(checksumLink.isEmpty() ? HashAlgorithm.NONE : HashAlgorithm.SHA256);
                 }
-                installerPkg.setSize(Helper.getFileSize(installerDownloadLink));
                 if(ArchiveType.NONE == archiveType || ext == archiveType) {
                     installerPkg.setArchiveType(ext);
                     installerPkg.setFileName(installerName);
                     installerPkg.setDirectDownloadUri(installerDownloadLink);
                     installerPkg.setFreeUseInProduction(Boolean.TRUE);
                     if (onlyNewPkgs) {
-                        if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(installerName)).filter(p -> p.getDirectDownloadUri().equals(installerDownloadLink)).count() == 0) {
+                        if (!CacheManager.INSTANCE.pkgCache.containsDownload(installerName, installerDownloadLink)) {
+                            PkgSizeResolver.INSTANCE.resolve(installerPkg, installerDownloadLink);
                             pkgs.add(installerPkg);
                         }
                     }
@@ -366,7 +367,7 @@ public class Temurin implements Distribution {
                 }
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(packageName)).filter(p -> p.getDirectDownloadUri().equals(packageDownloadLink)).count() > 0) { continue; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(packageName, packageDownloadLink)) { continue; }
                 }
 
                 Pkg packagePkg = new Pkg();
@@ -387,6 +388,7 @@ public class Temurin implements Distribution {
                     packagePkg.setFileName(packageName);
                     packagePkg.setDirectDownloadUri(packageDownloadLink);
                     packagePkg.setFreeUseInProduction(Boolean.TRUE);
+                    PkgSizeResolver.INSTANCE.resolve(packagePkg, packageDownloadLink);
                     pkgs.add(packagePkg);
                 }
                 if (packageObj.has(FIELD_SIGNATURE_LINK)) {
@@ -403,7 +405,6 @@ public class Temurin implements Distribution {
                     packagePkg.setChecksumUri(checksumLink.isEmpty()  ? ""                 : checksumLink);
                     packagePkg.setChecksumType(checksumLink.isEmpty() ? HashAlgorithm.NONE : HashAlgorithm.SHA256);
                 }
-                packagePkg.setSize(Helper.getFileSize(packageDownloadLink));
             }
         }
 
@@ -412,7 +413,7 @@ public class Temurin implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         List<Pkg> pkgs = new ArrayList<>();
 
         final OptionalInt nextButOneEA = Helper.getNextButOneEA();
@@ -499,7 +500,7 @@ public class Temurin implements Distribution {
                     String downloadLink = assetJsonObj.get("browser_download_url").getAsString();
 
                     if (onlyNewPkgs) {
-                        if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                        if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
                     }
 
                     PackageType packageType = PackageType.fromText(filenameParts[0]);
@@ -551,11 +552,9 @@ public class Temurin implements Distribution {
                     pkg.setPackageType(packageType);
                     pkg.setOperatingSystem(operatingSystem);
                     pkg.setFreeUseInProduction(Boolean.TRUE);
-                    pkg.setSize(Helper.getFileSize(downloadLink));
 
-                    if (isEarlyAccessOnly) {
-                        if (publishedAt.isAfter(lastPublishedAt)) { pkgs.add(pkg); }
-                    } else {
+                    if (!isEarlyAccessOnly || publishedAt.isAfter(lastPublishedAt)) {
+                        PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
                         pkgs.add(pkg);
                     }
                 }
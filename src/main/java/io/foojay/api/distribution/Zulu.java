@@ -42,6 +42,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -263,7 +264,7 @@ public class Zulu implements Distribution {
         String downloadLink = jsonObj.get(FIELD_URL).getAsString();
 
         if (onlyNewPkgs) {
-            if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(pkg -> pkg.getFilename().equals(filename)).filter(pkg -> pkg.getDirectDownloadUri().equals(downloadLink)).count() > 0) { return pkgs; }
+            if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { return pkgs; }
         }
 
         JsonArray jdkVersionArray = jsonObj.get(FIELD_JAVA_VERSION).getAsJsonArray();
@@ -431,7 +432,7 @@ public class Zulu implements Distribution {
 
         pkg.setFreeUseInProduction(Boolean.TRUE);
 
-        pkg.setSize(Helper.getFileSize(downloadLink));
+        PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
         String directDownloadUri = pkg.getDirectDownloadUri();
         //String tckCertUri        = directDownloadUri.replaceAll("/bin/", "/pdf/cert\\.") + ".pdf";
@@ -477,7 +478,7 @@ public class Zulu implements Distribution {
                 VersionNumber   distroVersionNumber            = VersionNumber.fromText(reducedToDistroVersionFilename);
 
                 if (onlyNewPkgs) {
-                    if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(pkg -> pkg.getFilename().equals(filename)).filter(pkg -> pkg.getDirectDownloadUri().equals(downloadLink)).count() > 0) { return pkgs; }
+                    if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { return pkgs; }
                 }
 
                 Pkg pkg = new Pkg();
@@ -552,7 +553,7 @@ public class Zulu implements Distribution {
                 pkg.setJavaFXBundled(filename.contains("-fx"));
 
                 pkg.setFreeUseInProduction(Boolean.TRUE);
-                pkg.setSize(Helper.getFileSize(downloadLink));
+                PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
                 String directDownloadUri = pkg.getDirectDownloadUri();
                 //String tckCertUri        = directDownloadUri.replaceAll("/bin/", "/pdf/cert\\.") + ".pdf";
@@ -38,6 +38,7 @@ import io.foojay.api.pkg.MajorVersion;
 import io.foojay.api.pkg.Pkg;
 import io.foojay.api.util.Constants;
 import io.foojay.api.util.Helper;
+import io.foojay.api.util.PkgSizeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -173,7 +174,7 @@ public class ZuluPrime implements Distribution {
         String downloadLink = jsonObj.get(FIELD_URL).getAsString();
 
         if (onlyNewPkgs) {
-            if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(pkg -> pkg.getFilename().equals(filename)).filter(pkg -> pkg.getDirectDownloadUri().equals(downloadLink)).count() > 0) { return pkgs; }
+            if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { return pkgs; }
         }
 
         JsonArray     jdkVersionArray = jsonObj.get(FIELD_JAVA_VERSION).getAsJsonArray();
@@ -292,7 +293,7 @@ public class ZuluPrime implements Distribution {
 
         pkg.setFreeUseInProduction(Boolean.TRUE);
 
-        pkg.setSize(Helper.getFileSize(downloadLink));
+        PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
         String directDownloadUri = pkg.getDirectDownloadUri();
         String tckCertUri        = directDownloadUri.replace("/bin/", "/pdf/cert.") + ".pdf";
@@ -308,7 +309,7 @@ public class ZuluPrime implements Distribution {
         return pkgs;
     }
 
-    public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
+    @Override public List<Pkg> getAllPkgs(final boolean onlyNewPkgs) {
         List<Pkg> pkgs = new ArrayList<>();
 
         Map<String, String> downloadLinkMap = new HashMap<>();
@@ -353,7 +354,7 @@ public class ZuluPrime implements Distribution {
             pkg.setDirectDownloadUri(downloadLink);
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(downloadLink)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, downloadLink)) { continue; }
             }
 
             ArchiveType ext = getFromFileName(filename);
@@ -412,7 +413,7 @@ public class ZuluPrime implements Distribution {
             }
 
             pkg.setFreeUseInProduction(Boolean.FALSE);
-            pkg.setSize(Helper.getFileSize(downloadLink));
+            PkgSizeResolver.INSTANCE.resolve(pkg, downloadLink);
 
             pkgs.add(pkg);
         }
@@ -439,7 +440,7 @@ public class ZuluPrime implements Distribution {
             String filename = Helper.getFileNameFromText(fileHref.replaceAll("\"", ""));
 
             if (onlyNewPkgs) {
-                if (CacheManager.INSTANCE.pkgCache.getPkgs().stream().filter(p -> p.getFilename().equals(filename)).filter(p -> p.getDirectDownloadUri().equals(fileHref)).count() > 0) { continue; }
+                if (CacheManager.INSTANCE.pkgCache.containsDownload(filename, fileHref)) { continue; }
             }
 
             String withoutPrefix = zingPattern.matcher(filename).replaceAll("");
@@ -520,7 +521,7 @@ public class ZuluPrime implements Distribution {
 
             pkg.setFreeUseInProduction(Boolean.FALSE);
 
-            pkg.setSize(Helper.getFileSize(fileHref));
+            PkgSizeResolver.INSTANCE.resolve(pkg, fileHref);
 
             pkgs.add(pkg);
         }
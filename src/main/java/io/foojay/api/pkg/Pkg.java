@@ -43,6 +43,7 @@ import io.foojay.api.util.Helper;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
@@ -72,6 +73,11 @@ import static io.foojay.api.util.Constants.SQUARE_BRACKET_OPEN;
 
 
 public class Pkg {
+    /**
+     * Canonical order of packages in api responses (distribution name and semver descending)
+     */
+    public static final Comparator<Pkg> DEFAULT_ORDER = Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed());
+
     private             Distribution    distribution;
     private             VersionNumber   versionNumber;
     private             VersionNumber   javaVersion;
@@ -154,68 +160,86 @@ public class Pkg {
         this.semver               = versionNumber.getFeature().isPresent() ? Semver.fromText(versionNumber.toString()).getSemver1() : new Semver(versionNumber);
     }
     public Pkg(final String jsonText) {
-        if (null == jsonText || jsonText.isEmpty()) { throw new IllegalArgumentException("Json text cannot be null or empty"); }
-        final Gson       gson = new Gson();
-        final JsonObject json = gson.fromJson(jsonText, JsonObject.class);
-
-        final Distro distro       = Distro.fromText(json.get(PkgField.DISTRIBUTION.fieldName()).getAsString());
+        this(parse(jsonText));
+    }
+    private Pkg(final JsonObject json) {
+        this(json.get(PkgField.DISTRIBUTION.fieldName()).getAsString(),
+             json.get(PkgField.JAVA_VERSION.fieldName()).getAsString(),
+             json.get(PkgField.DISTRIBUTION_VERSION.fieldName()).getAsString(),
+             json.has(PkgField.JDK_VERSION.fieldName())            ? json.get(PkgField.JDK_VERSION.fieldName()).getAsInt()                : null,
+             json.has(PkgField.LATEST_BUILD_AVAILABLE.fieldName()) ? json.get(PkgField.LATEST_BUILD_AVAILABLE.fieldName()).getAsBoolean() : null,
+             json.get(PkgField.ARCHITECTURE.fieldName()).getAsString(),
+             json.has(PkgField.FPU.fieldName())                    ? json.get(PkgField.FPU.fieldName()).getAsString()                     : null,
+             json.get(PkgField.OPERATING_SYSTEM.fieldName()).getAsString(),
+             json.get(PkgField.LIB_C_TYPE.fieldName()).getAsString(),
+             json.get(PkgField.PACKAGE_TYPE.fieldName()).getAsString(),
+             json.get(PkgField.RELEASE_STATUS.fieldName()).getAsString(),
+             json.get(PkgField.TERM_OF_SUPPORT.fieldName()).getAsString(),
+             json.get(PkgField.JAVAFX_BUNDLED.fieldName()).getAsBoolean(),
+             json.has(PkgField.DIRECTLY_DOWNLOADABLE.fieldName())  ? json.get(PkgField.DIRECTLY_DOWNLOADABLE.fieldName()).getAsBoolean()  : null,
+             json.get(PkgField.FILENAME.fieldName()).getAsString(),
+             json.get(PkgField.ARCHIVE_TYPE.fieldName()).getAsString(),
+             json.get(PkgField.DIRECT_DOWNLOAD_URI.fieldName()).getAsString(),
+             json.get(PkgField.DOWNLOAD_SITE_URI.fieldName()).getAsString(),
+             json.has(PkgField.SIGNATURE_URI.fieldName())          ? json.get(PkgField.SIGNATURE_URI.fieldName()).getAsString()           : null,
+             json.has(PkgField.CHECKSUM_URI.fieldName())           ? json.get(PkgField.CHECKSUM_URI.fieldName()).getAsString()            : null,
+             json.has(PkgField.CHECKSUM.fieldName())               ? json.get(PkgField.CHECKSUM.fieldName()).getAsString()                : null,
+             json.has(PkgField.CHECKSUM_TYPE.fieldName())          ? json.get(PkgField.CHECKSUM_TYPE.fieldName()).getAsString()           : null,
+             json.has(PkgField.FREE_USE_IN_PROD.fieldName())       ? json.get(PkgField.FREE_USE_IN_PROD.fieldName()).getAsBoolean()       : null,
+             json.has(PkgField.TCK_TESTED.fieldName())             ? json.get(PkgField.TCK_TESTED.fieldName()).getAsString()              : null,
+             json.has(PkgField.TCK_CERT_URI.fieldName())           ? json.get(PkgField.TCK_CERT_URI.fieldName()).getAsString()            : null,
+             json.has(PkgField.AQAVIT_CERTIFIED.fieldName())       ? json.get(PkgField.AQAVIT_CERTIFIED.fieldName()).getAsString()        : null,
+             json.has(PkgField.AQAVIT_CERT_URI.fieldName())        ? json.get(PkgField.AQAVIT_CERT_URI.fieldName()).getAsString()         : null,
+             json.has(PkgField.VALIDATED_AT.fieldName())           ? json.get(PkgField.VALIDATED_AT.fieldName()).getAsLong()              : null,
+             json.has(PkgField.URL_VALID.fieldName())              ? json.get(PkgField.URL_VALID.fieldName()).getAsBoolean()              : null,
+             json.has(PkgField.SIZE.fieldName())                   ? json.get(PkgField.SIZE.fieldName()).getAsLong()                      : null,
+             getFeatures(json));
+    }
+    /**
+     * Creates a package from the stored field values, e.g. read from the database (see PkgCodec).
+     * Values of optional fields are null if they are not present and will be set to their defaults.
+     */
+    Pkg(final String distribution, final String javaVersion, final String distributionVersion, final Integer jdkVersion, final Boolean latestBuildAvailable, final String architecture, final String fpu,
+        final String operatingSystem, final String libCType, final String packageType, final String releaseStatus, final String termOfSupport, final boolean javafxBundled, final Boolean directlyDownloadable,
+        final String filename, final String archiveType, final String directDownloadUri, final String downloadSiteUri, final String signatureUri, final String checksumUri, final String checksum,
+        final String checksumType, final Boolean freeUseInProduction, final String tckTested, final String tckCertUri, final String aqavitCertified, final String aqavitCertUri, final Long validatedAt,
+        final Boolean urlValid, final Long size, final Set<Feature> features) {
+        final Distro distro       = Distro.fromText(distribution);
         this.distribution         = distro.get();
-        this.versionNumber        = VersionNumber.fromText(json.get(PkgField.JAVA_VERSION.fieldName()).getAsString());
-        this.javaVersion          = VersionNumber.fromText(json.get(PkgField.JAVA_VERSION.fieldName()).getAsString());
-        this.distributionVersion  = VersionNumber.fromText(json.get(PkgField.DISTRIBUTION_VERSION.fieldName()).getAsString());
-        this.jdkVersion           = new MajorVersion(json.has(PkgField.JDK_VERSION.fieldName()) ? json.get(PkgField.JDK_VERSION.fieldName()).getAsInt() : this.javaVersion.getFeature().getAsInt());
-        this.latestBuildAvailable = json.has(PkgField.LATEST_BUILD_AVAILABLE.fieldName()) ? json.get(PkgField.LATEST_BUILD_AVAILABLE.fieldName()).getAsBoolean() : Boolean.FALSE;
-        this.architecture         = Architecture.fromText(json.get(PkgField.ARCHITECTURE.fieldName()).getAsString());
+        this.versionNumber        = VersionNumber.fromText(javaVersion);
+        this.javaVersion          = VersionNumber.fromText(javaVersion);
+        this.distributionVersion  = VersionNumber.fromText(distributionVersion);
+        this.jdkVersion           = new MajorVersion(null != jdkVersion ? jdkVersion : this.javaVersion.getFeature().getAsInt());
+        this.latestBuildAvailable = null != latestBuildAvailable ? latestBuildAvailable : Boolean.FALSE;
+        this.architecture         = Architecture.fromText(architecture);
         this.bitness              = this.architecture.getBitness();
-        this.fpu                  = json.has(PkgField.FPU.fieldName()) ? FPU.fromText(json.get(PkgField.FPU.fieldName()).getAsString()) : FPU.UNKNOWN;
-        this.operatingSystem      = OperatingSystem.fromText(json.get(PkgField.OPERATING_SYSTEM.fieldName()).getAsString());
-        this.libCType             = LibCType.fromText(json.get(PkgField.LIB_C_TYPE.fieldName()).getAsString());
-        this.packageType          = PackageType.fromText(json.get(PkgField.PACKAGE_TYPE.fieldName()).getAsString());
-        this.releaseStatus        = ReleaseStatus.fromText(json.get(PkgField.RELEASE_STATUS.fieldName()).getAsString());
-        this.termOfSupport        = TermOfSupport.fromText(json.get(PkgField.TERM_OF_SUPPORT.fieldName()).getAsString());
-        this.javafxBundled        = json.get(PkgField.JAVAFX_BUNDLED.fieldName()).getAsBoolean();
-        this.directlyDownloadable = json.has(PkgField.DIRECTLY_DOWNLOADABLE.fieldName()) ? json.get(PkgField.DIRECTLY_DOWNLOADABLE.fieldName()).getAsBoolean() : Boolean.TRUE;
+        this.fpu                  = null != fpu ? FPU.fromText(fpu) : FPU.UNKNOWN;
+        this.operatingSystem      = OperatingSystem.fromText(operatingSystem);
+        this.libCType             = LibCType.fromText(libCType);
+        this.packageType          = PackageType.fromText(packageType);
+        this.releaseStatus        = ReleaseStatus.fromText(releaseStatus);
+        this.termOfSupport        = TermOfSupport.fromText(termOfSupport);
+        this.javafxBundled        = javafxBundled;
+        this.directlyDownloadable = null != directlyDownloadable ? directlyDownloadable : Boolean.TRUE;
         this.headless             = Boolean.FALSE;
-        this.filename             = json.get(PkgField.FILENAME.fieldName()).getAsString();
-        this.archiveType          = json.get(PkgField.ARCHIVE_TYPE.fieldName()).getAsString().isEmpty() ? Helper.fetchArchiveType(this.filename) : ArchiveType.fromText(json.get(PkgField.ARCHIVE_TYPE.fieldName()).getAsString());
-        this.directDownloadUri    = json.get(PkgField.DIRECT_DOWNLOAD_URI.fieldName()).getAsString();
-        this.downloadSiteUri      = json.get(PkgField.DOWNLOAD_SITE_URI.fieldName()).getAsString();
-        this.signatureUri         = json.has(PkgField.SIGNATURE_URI.fieldName()) ? json.get(PkgField.SIGNATURE_URI.fieldName()).getAsString() : "";
-        this.checksumUri          = json.has(PkgField.CHECKSUM_URI.fieldName()) ? json.get(PkgField.CHECKSUM_URI.fieldName()).getAsString() : "";
-        this.checksum             = json.has(PkgField.CHECKSUM.fieldName()) ? json.get(PkgField.CHECKSUM.fieldName()).getAsString() : "";
-        this.checksumType         = json.has(PkgField.CHECKSUM_TYPE.fieldName()) ? HashAlgorithm.fromText(json.get(PkgField.CHECKSUM_TYPE.fieldName()).getAsString()) : HashAlgorithm.NONE;
-        this.semver               = Semver.fromText(json.get(PkgField.JAVA_VERSION.fieldName()).getAsString()).getSemver1();
-        this.freeUseInProduction  = json.has(PkgField.FREE_USE_IN_PROD.fieldName()) ? json.get(PkgField.FREE_USE_IN_PROD.fieldName()).getAsBoolean() : Boolean.FALSE;
-        this.tckTested            = json.has(PkgField.TCK_TESTED.fieldName()) ? Verification.fromText(json.get(PkgField.TCK_TESTED.fieldName()).getAsString()) : Verification.UNKNOWN;
-        this.tckCertUri           = json.has(PkgField.TCK_CERT_URI.fieldName()) ? json.get(PkgField.TCK_CERT_URI.fieldName()).getAsString() : "";
-        this.aqavitCertified      = json.has(PkgField.AQAVIT_CERTIFIED.fieldName()) ? Verification.fromText(json.get(PkgField.AQAVIT_CERTIFIED.fieldName()).getAsString()) : Verification.UNKNOWN;
-        this.aqavitCertUri        = json.has(PkgField.AQAVIT_CERT_URI.fieldName()) ? json.get(PkgField.AQAVIT_CERT_URI.fieldName()).getAsString() : "";
-        this.validatedAt          = json.has(PkgField.VALIDATED_AT.fieldName()) ? json.get(PkgField.VALIDATED_AT.fieldName()).getAsLong() : Instant.now().getEpochSecond() - Constants.SECONDS_PER_MONTH;
-        this.urlValid             = json.has(PkgField.URL_VALID.fieldName()) ? json.get(PkgField.URL_VALID.fieldName()).getAsBoolean() : Boolean.TRUE;
-        this.size                 = json.has(PkgField.SIZE.fieldName()) ? json.get(PkgField.SIZE.fieldName()).getAsLong() : -1;
-        if (json.has(PkgField.FEATURE.fieldName())) {
-            features = new HashSet<>();
-            JsonArray featureArray = json.getAsJsonArray(PkgField.FEATURE.fieldName());
-            for (int i = 0 ; i < featureArray.size() ; i++) {
-                if (featureArray.get(i).isJsonObject()) {
-                    JsonObject featureObj = featureArray.get(i).getAsJsonObject();
-                    Feature feat = Feature.fromText(featureObj.get("name").getAsString());
-                    if (Feature.NOT_FOUND == feat || Feature.NONE == feat) {
-                        continue;
-                    }
-                    features.add(feat);
-                } else {
-                    String  featureString = featureArray.get(i).getAsString();
-                    Feature feat          = Feature.fromText(featureString);
-                    if (Feature.NOT_FOUND == feat || Feature.NONE == feat) {
-                        continue;
-                    }
-                    features.add(feat);
-                }
-            }
-        } else {
-            features = new HashSet<>();
-        }
+        this.filename             = filename;
+        this.archiveType          = archiveType.isEmpty() ? Helper.fetchArchiveType(this.filename) : ArchiveType.fromText(archiveType);
+        this.directDownloadUri    = directDownloadUri;
+        this.downloadSiteUri      = downloadSiteUri;
+        this.signatureUri         = null != signatureUri ? signatureUri : "";
+        this.checksumUri          = null != checksumUri ? checksumUri : "";
+        this.checksum             = null != checksum ? checksum : "";
+        this.checksumType         = null != checksumType ? HashAlgorithm.fromText(checksumType) : HashAlgorithm.NONE;
+        this.semver               = Semver.fromText(javaVersion).getSemver1();
+        this.freeUseInProduction  = null != freeUseInProduction ? freeUseInProduction : Boolean.FALSE;
+        this.tckTested            = null != tckTested ? Verification.fromText(tckTested) : Verification.UNKNOWN;
+        this.tckCertUri           = null != tckCertUri ? tckCertUri : "";
+        this.aqavitCertified      = null != aqavitCertified ? Verification.fromText(aqavitCertified) : Verification.UNKNOWN;
+        this.aqavitCertUri        = null != aqavitCertUri ? aqavitCertUri : "";
+        this.validatedAt          = null != validatedAt ? validatedAt : Instant.now().getEpochSecond() - Constants.SECONDS_PER_MONTH;
+        this.urlValid             = null != urlValid ? urlValid : Boolean.TRUE;
+        this.size                 = null != size ? size : -1;
+        this.features             = new HashSet<>(features);
 
         if (ArchiveType.NOT_FOUND     == this.archiveType)     { this.archiveType     = ArchiveType.getFromFileName(this.filename); }
         if (TermOfSupport.NOT_FOUND   == this.termOfSupport)   { this.termOfSupport   = Helper.getTermOfSupport(this.versionNumber, distro); }
@@ -998,4 +1022,22 @@ public class Pkg {
     @Override public String toString() {
         return toString(OutputFormat.REDUCED_COMPRESSED, API_VERSION_V3);
     }
+
+
+    private static JsonObject parse(final String jsonText) {
+        if (null == jsonText || jsonText.isEmpty()) { throw new IllegalArgumentException("Json text cannot be null or empty"); }
+        return new Gson().fromJson(jsonText, JsonObject.class);
+    }
+
+    private static Set<Feature> getFeatures(final JsonObject json) {
+        final Set<Feature> features = new HashSet<>();
+        if (!json.has(PkgField.FEATURE.fieldName())) { return features; }
+        JsonArray featureArray = json.getAsJsonArray(PkgField.FEATURE.fieldName());
+        for (int i = 0 ; i < featureArray.size() ; i++) {
+            Feature feat = featureArray.get(i).isJsonObject() ? Feature.fromText(featureArray.get(i).getAsJsonObject().get("name").getAsString()) : Feature.fromText(featureArray.get(i).getAsString());
+            if (Feature.NOT_FOUND == feat || Feature.NONE == feat) { continue; }
+            features.add(feat);
+        }
+        return features;
+    }
 }
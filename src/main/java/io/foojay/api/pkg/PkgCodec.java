@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.pkg;
+
+import eu.hansolo.jdktools.util.OutputFormat;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static io.foojay.api.util.Constants.API_VERSION_V3;
+
+
+/**
+ * Mongo codec that reads packages straight from the BSON reader instead of converting each
+ * document to json and parsing it again with Gson.
+ * The stored field values are passed to the same constructor that Pkg(String) uses, so both
+ * ways apply the same defaults. Documents that cannot be converted to a package are decoded
+ * to null and have to be skipped by the caller.
+ * Packages are encoded in the same format as before (Pkg.toString() with OutputFormat.FULL_COMPRESSED).
+ */
+public class PkgCodec implements Codec<Pkg> {
+    private static final Logger                LOGGER         = LoggerFactory.getLogger(PkgCodec.class);
+    private static final DocumentCodec         DOCUMENT_CODEC = new DocumentCodec();
+    private static final List<PkgField>      DECODED_FIELDS = List.of(PkgField.ID, PkgField.DISTRIBUTION, PkgField.JAVA_VERSION, PkgField.DISTRIBUTION_VERSION, PkgField.JDK_VERSION, PkgField.LATEST_BUILD_AVAILABLE,
+                                                                      PkgField.ARCHITECTURE, PkgField.FPU, PkgField.OPERATING_SYSTEM, PkgField.LIB_C_TYPE, PkgField.PACKAGE_TYPE, PkgField.RELEASE_STATUS,
+                                                                      PkgField.TERM_OF_SUPPORT, PkgField.JAVAFX_BUNDLED, PkgField.DIRECTLY_DOWNLOADABLE, PkgField.FILENAME, PkgField.ARCHIVE_TYPE,
+                                                                      PkgField.DIRECT_DOWNLOAD_URI, PkgField.DOWNLOAD_SITE_URI, PkgField.SIGNATURE_URI, PkgField.CHECKSUM_URI, PkgField.CHECKSUM,
+                                                                      PkgField.CHECKSUM_TYPE, PkgField.FREE_USE_IN_PROD, PkgField.TCK_TESTED, PkgField.TCK_CERT_URI, PkgField.AQAVIT_CERTIFIED,
+                                                                      PkgField.AQAVIT_CERT_URI, PkgField.VALIDATED_AT, PkgField.URL_VALID, PkgField.SIZE, PkgField.FEATURE);
+    private static final Map<String, PkgField> FIELDS_BY_NAME = DECODED_FIELDS.stream().collect(Collectors.toUnmodifiableMap(PkgField::fieldName, Function.identity()));
+    /**
+     * Names of all fields that are read by the codec, can be used as projection when loading packages
+     */
+    public  static final List<String>          FIELDS         = DECODED_FIELDS.stream().map(PkgField::fieldName).toList();
+
+
+    @Override public Pkg decode(final BsonReader reader, final DecoderContext decoderContext) {
+        String       id                   = null;
+        String       distribution         = null;
+        String       javaVersion          = null;
+        String       distributionVersion  = null;
+        Long         jdkVersion           = null;
+        Boolean      latestBuildAvailable = null;
+        String       architecture         = null;
+        String       fpu                  = null;
+        String       operatingSystem      = null;
+        String       libCType             = null;
+        String       packageType          = null;
+        String       releaseStatus        = null;
+        String       termOfSupport        = null;
+        Boolean      javafxBundled        = null;
+        Boolean      directlyDownloadable = null;
+        String       filename             = null;
+        String       archiveType          = null;
+        String       directDownloadUri    = null;
+        String       downloadSiteUri      = null;
+        String       signatureUri         = null;
+        String       checksumUri          = null;
+        String       checksum             = null;
+        String       checksumType         = null;
+        Boolean      freeUseInProduction  = null;
+        String       tckTested            = null;
+        String       tckCertUri           = null;
+        String       aqavitCertified      = null;
+        String       aqavitCertUri        = null;
+        Long         validatedAt          = null;
+        Boolean      urlValid             = null;
+        Long         size                 = null;
+        Set<Feature> features             = new HashSet<>();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            final PkgField field = FIELDS_BY_NAME.get(reader.readName());
+            if (null == field) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case ID                     -> id                   = readString(reader);
+                case DISTRIBUTION           -> distribution         = readString(reader);
+                case JAVA_VERSION           -> javaVersion          = readString(reader);
+                case DISTRIBUTION_VERSION   -> distributionVersion  = readString(reader);
+                case JDK_VERSION            -> jdkVersion           = readLong(reader);
+                case LATEST_BUILD_AVAILABLE -> latestBuildAvailable = readBoolean(reader);
+                case ARCHITECTURE           -> architecture         = readString(reader);
+                case FPU                    -> fpu                  = readString(reader);
+                case OPERATING_SYSTEM       -> operatingSystem      = readString(reader);
+                case LIB_C_TYPE             -> libCType             = readString(reader);
+                case PACKAGE_TYPE           -> packageType          = readString(reader);
+                case RELEASE_STATUS         -> releaseStatus        = readString(reader);
+                case TERM_OF_SUPPORT        -> termOfSupport        = readString(reader);
+                case JAVAFX_BUNDLED         -> javafxBundled        = readBoolean(reader);
+                case DIRECTLY_DOWNLOADABLE  -> directlyDownloadable = readBoolean(reader);
+                case FILENAME               -> filename             = readString(reader);
+                case ARCHIVE_TYPE           -> archiveType          = readString(reader);
+                case DIRECT_DOWNLOAD_URI    -> directDownloadUri    = readString(reader);
+                case DOWNLOAD_SITE_URI      -> downloadSiteUri      = readString(reader);
+                case SIGNATURE_URI          -> signatureUri         = readString(reader);
+                case CHECKSUM_URI           -> checksumUri          = readString(reader);
+                case CHECKSUM               -> checksum             = readString(reader);
+                case CHECKSUM_TYPE          -> checksumType         = readString(reader);
+                case FREE_USE_IN_PROD       -> freeUseInProduction  = readBoolean(reader);
+                case TCK_TESTED             -> tckTested            = readString(reader);
+                case TCK_CERT_URI           -> tckCertUri           = readString(reader);
+                case AQAVIT_CERTIFIED       -> aqavitCertified      = readString(reader);
+                case AQAVIT_CERT_URI        -> aqavitCertUri        = readString(reader);
+                case VALIDATED_AT           -> validatedAt          = readLong(reader);
+                case URL_VALID              -> urlValid             = readBoolean(reader);
+                case SIZE                   -> size                 = readLong(reader);
+                case FEATURE                -> readFeatures(reader, features);
+                default                     -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        try {
+            return new Pkg(distribution, javaVersion, distributionVersion, null == jdkVersion ? null : jdkVersion.intValue(), latestBuildAvailable, architecture, fpu, operatingSystem, libCType,
+                           packageType, releaseStatus, termOfSupport, javafxBundled, directlyDownloadable, filename, archiveType, directDownloadUri, downloadSiteUri, signatureUri, checksumUri,
+                           checksum, checksumType, freeUseInProduction, tckTested, tckCertUri, aqavitCertified, aqavitCertUri, validatedAt, urlValid, size, features);
+        } catch (Exception e) {
+            LOGGER.error("Error creating pkg with id {}. {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override public void encode(final BsonWriter writer, final Pkg pkg, final EncoderContext encoderContext) {
+        DOCUMENT_CODEC.encode(writer, Document.parse(pkg.toString(OutputFormat.FULL_COMPRESSED, API_VERSION_V3)), encoderContext);
+    }
+
+    @Override public Class<Pkg> getEncoderClass() { return Pkg.class; }
+
+
+    private static String readString(final BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case STRING: return reader.readString();
+            case INT32 : return Integer.toString(reader.readInt32());
+            case INT64 : return Long.toString(reader.readInt64());
+            case DOUBLE: return Double.toString(reader.readDouble());
+            default    : reader.skipValue(); return null;
+        }
+    }
+
+    private static Long readLong(final BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32 : return (long) reader.readInt32();
+            case INT64 : return reader.readInt64();
+            case DOUBLE: return (long) reader.readDouble();
+            case STRING:
+                final String text = reader.readString();
+                try {
+                    return Long.valueOf(text);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            default    : reader.skipValue(); return null;
+        }
+    }
+
+    private static Boolean readBoolean(final BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case BOOLEAN: return reader.readBoolean();
+            case STRING : return Boolean.valueOf(reader.readString());
+            default     : reader.skipValue(); return null;
+        }
+    }
+
+    /**
+     * Features are stored either as strings or as documents with a name field
+     */
+    private static void readFeatures(final BsonReader reader, final Set<Feature> features) {
+        if (BsonType.ARRAY != reader.getCurrentBsonType()) {
+            reader.skipValue();
+            return;
+        }
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String featureName = null;
+            if (BsonType.DOCUMENT == reader.getCurrentBsonType()) {
+                reader.readStartDocument();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    if ("name".equals(reader.readName())) {
+                        featureName = readString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.readEndDocument();
+            } else {
+                featureName = readString(reader);
+            }
+            if (null == featureName) { continue; }
+            final Feature feature = Feature.fromText(featureName);
+            if (Feature.NOT_FOUND == feature || Feature.NONE == feature) { continue; }
+            features.add(feature);
+        }
+        reader.readEndArray();
+    }
+}
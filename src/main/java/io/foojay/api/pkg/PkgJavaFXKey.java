@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.pkg;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.distribution.Distribution;
+
+import java.util.Objects;
+
+
+/**
+ * Equivalence key that contains all fields that are compared in Pkg.equalsExceptJavaFXAndPackageType()
+ * except the javafx bundled flag. A package with and a package without bundled JavaFX are variants of
+ * each other if their keys are equal.
+ * The java version is compared with compareTo() like in Pkg.equalsExceptJavaFXAndPackageType(), the hash
+ * only uses its version components which are equal for all versions that compare to 0.
+ */
+public final class PkgJavaFXKey {
+    private final Distribution    distribution;
+    private final VersionNumber   javaVersion;
+    private final Architecture    architecture;
+    private final OperatingSystem operatingSystem;
+    private final LibCType        libCType;
+    private final PackageType     packageType;
+    private final ReleaseStatus   releaseStatus;
+    private final TermOfSupport   termOfSupport;
+    private final Boolean         directlyDownloadable;
+    private final int             hashCode;
+
+
+    public PkgJavaFXKey(final Pkg pkg) {
+        this.distribution         = pkg.getDistribution();
+        this.javaVersion          = pkg.getJavaVersion();
+        this.architecture         = pkg.getArchitecture();
+        this.operatingSystem      = pkg.getOperatingSystem();
+        this.libCType             = pkg.getLibCType();
+        this.packageType          = pkg.getPackageType();
+        this.releaseStatus        = pkg.getReleaseStatus();
+        this.termOfSupport        = pkg.getTermOfSupport();
+        this.directlyDownloadable = pkg.isDirectlyDownloadable();
+        this.hashCode             = Objects.hash(distribution, javaVersion.getFeature().orElse(0), javaVersion.getInterim().orElse(0), javaVersion.getUpdate().orElse(0), javaVersion.getPatch().orElse(0),
+                                                 architecture, operatingSystem, libCType, packageType, releaseStatus, termOfSupport, directlyDownloadable);
+    }
+
+
+    @Override public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (null == o || getClass() != o.getClass()) return false;
+        PkgJavaFXKey key = (PkgJavaFXKey) o;
+        return distribution.equals(key.distribution) &&
+               javaVersion.compareTo(key.javaVersion) == 0 &&
+               architecture         == key.architecture &&
+               operatingSystem      == key.operatingSystem &&
+               libCType             == key.libCType &&
+               packageType          == key.packageType &&
+               releaseStatus        == key.releaseStatus &&
+               termOfSupport        == key.termOfSupport &&
+               directlyDownloadable == key.directlyDownloadable;
+    }
+
+    @Override public int hashCode() { return hashCode; }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.pkg;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.Bitness;
+import eu.hansolo.jdktools.FPU;
+import eu.hansolo.jdktools.Latest;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.Match;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.Verification;
+import eu.hansolo.jdktools.scopes.Scope;
+import eu.hansolo.jdktools.util.Comparison;
+import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.distribution.Distribution;
+import io.foojay.api.util.Constants;
+import io.foojay.api.util.PkgIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+
+/**
+ * The criteria of a package search, compiled once per request.
+ * Enum criteria are kept in EnumSets and evaluated as intersections of the PkgIndex bitsets, starting with
+ * the most selective one. The remaining criteria are combined into one predicate that only contains the
+ * checks that are not no-ops. Packages read from the database always have all their enum and flag fields
+ * set, so criteria that only check for non-null values (empty lists, null flags, Verification.NONE) are dropped.
+ */
+public class PkgQuery {
+    private final VersionNumber          versionNumber;
+    private final VersionNumber          toVersionNumber;
+    private final Comparison             comparison;
+    private final MajorVersion           jdkVersion;
+    private final boolean                allDistributions;
+    private final Set<Distro>            distros;
+    private final Set<Distro>            distrosMatchingAnyScope;
+    private final Set<Architecture>      architectures;
+    private final Set<FPU>               fpus;
+    private final Set<ArchiveType>       archiveTypes;
+    private final PackageType            packageType;
+    private final Set<OperatingSystem>   operatingSystems;
+    private final Set<LibCType>          libCTypes;
+    private final Set<ReleaseStatus>     releaseStatus;
+    private final Set<TermOfSupport>     termsOfSupport;
+    private final Bitness                bitness;
+    private final Boolean                javafxBundled;
+    private final Boolean                withFxIfAvailable;
+    private final Boolean                directlyDownloadable;
+    private final Latest                 latest;
+    private final Set<Feature>           features;
+    private final Boolean                signatureAvailable;
+    private final Boolean                freeToUseInProduction;
+    private final Verification           tckTested;
+    private final Verification           aqavitCertified;
+    private final Set<Scope>             pkgScopes;
+    private final Predicate<Pkg>         residual;
+    private final int                    hashCode;
+
+
+    public PkgQuery(final VersionNumber versionNumber, final VersionNumber toVersionNumber, final Comparison comparison, final MajorVersion jdkVersion, final List<Distribution> distributions, final List<Architecture> architectures, final List<FPU> fpus, final List<ArchiveType> archiveTypes,
+                    final PackageType packageType, final List<OperatingSystem> operatingSystems, final List<LibCType> libCTypes, final List<ReleaseStatus> releaseStatus, final List<TermOfSupport> termsOfSupport,
+                    final Bitness bitness, final Boolean javafxBundled, final Boolean withFxIfAvailable, final Boolean directlyDownloadable, final Latest latest, final List<Feature> features, final Boolean signatureAvailable,
+                    final Boolean freeToUseInProduction, final Verification tckTested, final Verification aqavitCertified, final List<Scope> distroScopes, final Match match, final List<Scope> pkgScopes) {
+        final Set<Scope> scopes = new HashSet<>(distroScopes);
+        this.versionNumber           = versionNumber;
+        this.toVersionNumber         = toVersionNumber;
+        this.comparison              = comparison;
+        this.jdkVersion              = jdkVersion;
+        this.allDistributions        = distributions.isEmpty();
+        this.distros                 = getDistros(distributions, scopes, match);
+        this.distrosMatchingAnyScope = Match.ANY == match ? distros : getDistros(distributions, scopes, Match.ANY);
+        this.architectures           = toEnumSet(Architecture.class, architectures);
+        this.fpus                    = toEnumSet(FPU.class, fpus);
+        this.archiveTypes            = toEnumSet(ArchiveType.class, archiveTypes);
+        this.packageType             = packageType;
+        this.operatingSystems        = toEnumSet(OperatingSystem.class, operatingSystems);
+        this.libCTypes               = toEnumSet(LibCType.class, libCTypes);
+        this.releaseStatus           = toEnumSet(ReleaseStatus.class, releaseStatus);
+        this.termsOfSupport          = toEnumSet(TermOfSupport.class, termsOfSupport);
+        this.bitness                 = bitness;
+        this.javafxBundled           = javafxBundled;
+        this.withFxIfAvailable       = withFxIfAvailable;
+        this.directlyDownloadable    = directlyDownloadable;
+        this.latest                  = latest;
+        this.features                = null == features ? null : toEnumSet(Feature.class, features);
+        this.signatureAvailable      = signatureAvailable;
+        this.freeToUseInProduction   = freeToUseInProduction;
+        this.tckTested               = tckTested;
+        this.aqavitCertified         = aqavitCertified;
+        this.pkgScopes               = null == pkgScopes ? Set.of() : new HashSet<>(pkgScopes);
+        this.residual                = compileResidual(jdkVersion, signatureAvailable, freeToUseInProduction, tckTested, aqavitCertified, pkgScopes);
+        this.hashCode                = Objects.hash(null == versionNumber ? null : versionNumber.toString(), null == toVersionNumber ? null : toVersionNumber.toString(), comparison, getJdkVersionAsInt(),
+                                                    distros, distrosMatchingAnyScope, allDistributions, this.architectures, this.fpus, this.archiveTypes, packageType, this.operatingSystems, this.libCTypes,
+                                                    this.releaseStatus, this.termsOfSupport, bitness, javafxBundled, withFxIfAvailable, directlyDownloadable, latest, this.features, signatureAvailable,
+                                                    freeToUseInProduction, tckTested, aqavitCertified, this.pkgScopes);
+    }
+
+
+    public VersionNumber getVersionNumber() { return versionNumber; }
+
+    public VersionNumber getToVersionNumber() { return toVersionNumber; }
+
+    public Comparison getComparison() { return comparison; }
+
+    public MajorVersion getJdkVersion() { return jdkVersion; }
+
+    public Latest getLatest() { return latest; }
+
+    public Boolean getJavafxBundled() { return javafxBundled; }
+
+    public Boolean getWithFxIfAvailable() { return withFxIfAvailable; }
+
+    /**
+     * Returns true if no distributions were given which means all distributions will be searched
+     * @return true if no distributions were given
+     */
+    public boolean isAllDistributions() { return allDistributions; }
+
+    /**
+     * Returns the available distros that were requested (all if none) and match the distro scopes
+     * @return the available distros that were requested and match the distro scopes
+     */
+    public Set<Distro> getDistros() { return Collections.unmodifiableSet(distros); }
+
+    /**
+     * Returns the available distros that were requested (all if none) and match any of the distro scopes
+     * @return the available distros that were requested and match any of the distro scopes
+     */
+    public Set<Distro> getDistrosMatchingAnyScope() { return Collections.unmodifiableSet(distrosMatchingAnyScope); }
+
+    /**
+     * Returns all packages of the given index that match all criteria of this query except the version criteria in index order
+     * @param pkgIndex
+     * @return all packages of the given index that match all criteria except the version criteria
+     */
+    public List<Pkg> getPkgs(final PkgIndex pkgIndex) { return getPkgs(pkgIndex, distros); }
+
+    /**
+     * Returns all packages of the given distros in the given index that match all criteria of this query except
+     * the version and distro criteria in index order
+     * @param pkgIndex
+     * @param distros
+     * @return all packages of the given distros that match all criteria except the version and distro criteria
+     */
+    public List<Pkg> getPkgs(final PkgIndex pkgIndex, final Set<Distro> distros) {
+        final List<Pkg> pkgs = pkgIndex.getPkgs(select(pkgIndex, distros, true));
+        if (null == residual) { return pkgs; }
+        final List<Pkg> pkgsFound = new ArrayList<>(pkgs.size());
+        for (Pkg pkg : pkgs) {
+            if (residual.test(pkg)) { pkgsFound.add(pkg); }
+        }
+        return pkgsFound;
+    }
+
+    /**
+     * Returns all packages of the given index that match the enum criteria and the jdk version of this query,
+     * without taking fpus and features into account
+     * @param pkgIndex
+     * @return all packages of the given index that match the enum criteria and the jdk version without fpus and features
+     */
+    public List<Pkg> getPkgsIgnoringFpusAndFeatures(final PkgIndex pkgIndex) {
+        final List<Pkg> pkgs = pkgIndex.getPkgs(select(pkgIndex, distros, false));
+        if (null == jdkVersion) { return pkgs; }
+        final List<Pkg> pkgsFound = new ArrayList<>(pkgs.size());
+        for (Pkg pkg : pkgs) {
+            if (pkg.getJdkVersion().equals(jdkVersion)) { pkgsFound.add(pkg); }
+        }
+        return pkgsFound;
+    }
+
+
+    /**
+     * Two queries are equal if their canonical criteria are equal, e.g. the order of the given lists and
+     * distributions that resolve to the same distros don't matter. The jdk version is compared by its number.
+     */
+    @Override public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (null == o || getClass() != o.getClass()) return false;
+        PkgQuery query = (PkgQuery) o;
+        return hashCode == query.hashCode &&
+               Objects.equals(versionNumber, query.versionNumber) &&
+               Objects.equals(toVersionNumber, query.toVersionNumber) &&
+               comparison            == query.comparison &&
+               Objects.equals(getJdkVersionAsInt(), query.getJdkVersionAsInt()) &&
+               allDistributions      == query.allDistributions &&
+               distros.equals(query.distros) &&
+               distrosMatchingAnyScope.equals(query.distrosMatchingAnyScope) &&
+               architectures.equals(query.architectures) &&
+               fpus.equals(query.fpus) &&
+               archiveTypes.equals(query.archiveTypes) &&
+               packageType           == query.packageType &&
+               operatingSystems.equals(query.operatingSystems) &&
+               libCTypes.equals(query.libCTypes) &&
+               releaseStatus.equals(query.releaseStatus) &&
+               termsOfSupport.equals(query.termsOfSupport) &&
+               bitness               == query.bitness &&
+               Objects.equals(javafxBundled, query.javafxBundled) &&
+               Objects.equals(withFxIfAvailable, query.withFxIfAvailable) &&
+               Objects.equals(directlyDownloadable, query.directlyDownloadable) &&
+               latest                == query.latest &&
+               Objects.equals(features, query.features) &&
+               Objects.equals(signatureAvailable, query.signatureAvailable) &&
+               Objects.equals(freeToUseInProduction, query.freeToUseInProduction) &&
+               tckTested             == query.tckTested &&
+               aqavitCertified       == query.aqavitCertified &&
+               pkgScopes.equals(query.pkgScopes);
+    }
+
+    @Override public int hashCode() { return hashCode; }
+
+
+    private Integer getJdkVersionAsInt() { return null == jdkVersion ? null : jdkVersion.getAsInt(); }
+
+    /**
+     * Returns the positions of all packages in the given index that match the enum criteria of this query.
+     * The bitsets of all criteria are intersected starting with the smallest one, bitsets that contain all
+     * packages are no-ops and skipped.
+     */
+    private BitSet select(final PkgIndex pkgIndex, final Set<Distro> distros, final boolean withFpusAndFeatures) {
+        if (distros.isEmpty() || pkgIndex.isEmpty()) { return new BitSet(); }
+        final List<BitSet> criteria = new ArrayList<>();
+        criteria.add(pkgIndex.withDistros(distros));
+        criteria.add(pkgIndex.withPackageType(packageType));
+        criteria.add(pkgIndex.withBitness(bitness));
+        if (null != jdkVersion)           { criteria.add(pkgIndex.withMajorVersion(jdkVersion.getAsInt())); }
+        if (!architectures.isEmpty())     { criteria.add(pkgIndex.withArchitectures(architectures)); }
+        if (!archiveTypes.isEmpty())      { criteria.add(pkgIndex.withArchiveTypes(archiveTypes)); }
+        if (!operatingSystems.isEmpty())  { criteria.add(pkgIndex.withOperatingSystems(operatingSystems)); }
+        if (!libCTypes.isEmpty())         { criteria.add(pkgIndex.withLibCTypes(libCTypes)); }
+        if (!termsOfSupport.isEmpty())    { criteria.add(pkgIndex.withTermsOfSupport(termsOfSupport)); }
+        if (!releaseStatus.isEmpty())     { criteria.add(pkgIndex.withReleaseStatus(releaseStatus)); }
+        if (null != javafxBundled)        { criteria.add(pkgIndex.withJavaFXBundled(javafxBundled)); }
+        if (null != directlyDownloadable) { criteria.add(pkgIndex.withDirectlyDownloadable(directlyDownloadable)); }
+        if (withFpusAndFeatures) {
+            if (!fpus.isEmpty()) { criteria.add(pkgIndex.withFPUs(fpus)); }
+            if (null != features) { criteria.add(pkgIndex.withFeatures(features)); }
+        }
+
+        final int size = pkgIndex.size();
+        criteria.removeIf(bits -> bits.cardinality() == size);
+        if (criteria.isEmpty()) { return pkgIndex.all(); }
+        criteria.sort(Comparator.comparingInt(BitSet::cardinality));
+
+        final BitSet bits = criteria.get(0);
+        for (int i = 1 ; i < criteria.size() && !bits.isEmpty() ; i++) { bits.and(criteria.get(i)); }
+        return bits;
+    }
+
+    /**
+     * Returns a predicate for the criteria that are not covered by the package index, or null if all of them
+     * are no-ops. The checks run in a fixed order: jdk version, tck, aqavit, signature, signature scopes and
+     * free to use in production.
+     */
+    private static Predicate<Pkg> compileResidual(final MajorVersion jdkVersion, final Boolean signatureAvailable, final Boolean freeToUseInProduction, final Verification tckTested, final Verification aqavitCertified, final List<Scope> pkgScopes) {
+        final List<Predicate<Pkg>> checks = new ArrayList<>();
+        if (null != jdkVersion) { checks.add(pkg -> pkg.getJdkVersion().equals(jdkVersion)); }
+        if (Verification.NONE != tckTested)       { checks.add(pkg -> pkg.getTckTested()       == tckTested); }
+        if (Verification.NONE != aqavitCertified) { checks.add(pkg -> pkg.getAqavitCertified() == aqavitCertified); }
+        if (null != signatureAvailable) {
+            checks.add(signatureAvailable ? pkg -> null != pkg.getSignatureUri() && !pkg.getSignatureUri().isEmpty() : pkg -> null == pkg.getSignatureUri() || pkg.getSignatureUri().isEmpty());
+        }
+        if (null != pkgScopes) {
+            for (Scope scope : pkgScopes) {
+                switch (scope.getApiString()) {
+                    case "signature_available"     -> checks.add(pkg -> !pkg.getSignatureUri().isEmpty());
+                    case "signature_not_available" -> checks.add(pkg -> pkg.getSignatureUri().isEmpty());
+                }
+            }
+        }
+        if (null != freeToUseInProduction) { checks.add(Pkg::getFreeUseInProduction); }
+
+        if (checks.isEmpty()) { return null; }
+        Predicate<Pkg> residual = checks.get(0);
+        for (int i = 1 ; i < checks.size() ; i++) { residual = residual.and(checks.get(i)); }
+        return residual;
+    }
+
+    private static Set<Distro> getDistros(final List<Distribution> distributions, final Set<Scope> scopes, final Match match) {
+        final Collection<Distro> candidates = distributions.isEmpty() ? Distro.getAsList() : distributions.stream().map(Distribution::getDistro).toList();
+        final Set<Distro>        distros    = EnumSet.noneOf(Distro.class);
+        for (Distro distro : candidates) {
+            if (!distro.isAvailable() || !Constants.SCOPE_LOOKUP.containsKey(distro)) { continue; }
+            final List<Scope> distroScopes = Constants.SCOPE_LOOKUP.get(distro);
+            if (Match.ANY == match ? distroScopes.stream().anyMatch(scopes::contains) : distroScopes.stream().allMatch(scopes::contains)) { distros.add(distro); }
+        }
+        return distros;
+    }
+
+    private static <E extends Enum<E>> Set<E> toEnumSet(final Class<E> enumClass, final Collection<E> values) {
+        final Set<E> enumSet = EnumSet.noneOf(enumClass);
+        if (null != values) { enumSet.addAll(values); }
+        return enumSet;
+    }
+}
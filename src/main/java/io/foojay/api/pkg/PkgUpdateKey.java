@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.pkg;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import io.foojay.api.distribution.Distribution;
+
+import java.util.Objects;
+
+
+/**
+ * Grouping key that contains all fields that are compared in Pkg.equalsExceptUpdate().
+ * Two packages with different ids are updates of each other if their keys are equal.
+ */
+public final class PkgUpdateKey {
+    private final Distribution    distribution;
+    private final int             featureVersion;
+    private final int             interimVersion;
+    private final Architecture    architecture;
+    private final OperatingSystem operatingSystem;
+    private final LibCType        libCType;
+    private final PackageType     packageType;
+    private final ReleaseStatus   releaseStatus;
+    private final ArchiveType     archiveType;
+    private final TermOfSupport   termOfSupport;
+    private final Boolean         javafxBundled;
+    private final Boolean         directlyDownloadable;
+    private final int             hashCode;
+
+
+    public PkgUpdateKey(final Pkg pkg) {
+        this.distribution         = pkg.getDistribution();
+        this.featureVersion       = pkg.getFeatureVersion().getAsInt();
+        this.interimVersion       = pkg.getInterimVersion().getAsInt();
+        this.architecture         = pkg.getArchitecture();
+        this.operatingSystem      = pkg.getOperatingSystem();
+        this.libCType             = pkg.getLibCType();
+        this.packageType          = pkg.getPackageType();
+        this.releaseStatus        = pkg.getReleaseStatus();
+        this.archiveType          = pkg.getArchiveType();
+        this.termOfSupport        = pkg.getTermOfSupport();
+        this.javafxBundled        = pkg.isJavaFXBundled();
+        this.directlyDownloadable = pkg.isDirectlyDownloadable();
+        this.hashCode             = Objects.hash(distribution, featureVersion, interimVersion, architecture, operatingSystem, libCType, packageType, releaseStatus, archiveType, termOfSupport, javafxBundled, directlyDownloadable);
+    }
+
+
+    @Override public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (null == o || getClass() != o.getClass()) return false;
+        PkgUpdateKey key = (PkgUpdateKey) o;
+        return distribution.equals(key.distribution) &&
+               featureVersion       == key.featureVersion &&
+               interimVersion       == key.interimVersion &&
+               architecture         == key.architecture &&
+               operatingSystem      == key.operatingSystem &&
+               libCType             == key.libCType &&
+               packageType          == key.packageType &&
+               releaseStatus        == key.releaseStatus &&
+               archiveType          == key.archiveType &&
+               termOfSupport        == key.termOfSupport &&
+               javafxBundled        == key.javafxBundled &&
+               directlyDownloadable == key.directlyDownloadable;
+    }
+
+    @Override public int hashCode() { return hashCode; }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import java.util.List;
+
+
+/**
+ * Number of inserted, modified and failed documents of one batch of a bulk write
+ */
+public class BatchResult {
+    private final int batch;
+    private final int inserted;
+    private final int modified;
+    private final int failed;
+
+
+    public BatchResult(final int batch, final int inserted, final int modified, final int failed) {
+        this.batch    = batch;
+        this.inserted = inserted;
+        this.modified = modified;
+        this.failed   = failed;
+    }
+
+
+    public int getBatch() { return batch; }
+
+    public int getInserted() { return inserted; }
+
+    public int getModified() { return modified; }
+
+    public int getFailed() { return failed; }
+
+    public static int getInserted(final List<BatchResult> results) { return results.stream().mapToInt(BatchResult::getInserted).sum(); }
+
+    public static int getModified(final List<BatchResult> results) { return results.stream().mapToInt(BatchResult::getModified).sum(); }
+
+    public static int getFailed(final List<BatchResult> results) { return results.stream().mapToInt(BatchResult::getFailed).sum(); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("{")
+                                  .append("\"batch\":").append(batch).append(",")
+                                  .append("\"inserted\":").append(inserted).append(",")
+                                  .append("\"modified\":").append(modified).append(",")
+                                  .append("\"failed\":").append(failed)
+                                  .append("}")
+                                  .toString();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * Bounded queue that hands its elements in batches to a consumer on a background thread.
+ * A batch is handed over as soon as it contains maxBatchSize elements or when the first element
+ * of the batch has waited maxDelay milliseconds.
+ * Adding elements never blocks, if the queue is full because the consumer is too slow, the element
+ * is dropped. Accepted, dropped and failed elements are counted in the global Micrometer registry.
+ */
+public class BatchingQueue<T> {
+    private static final Logger            LOGGER = LoggerFactory.getLogger(BatchingQueue.class);
+    private        final BlockingQueue<T>  queue;
+    private        final int               maxBatchSize;
+    private        final long              maxDelay;
+    private        final Consumer<List<T>> consumer;
+    private        final Counter           accepted;
+    private        final Counter           dropped;
+    private        final Counter           failed;
+    private        final Thread            thread;
+    private volatile     boolean           running;
+
+
+    public BatchingQueue(final String name, final int capacity, final int maxBatchSize, final long maxDelay, final Consumer<List<T>> consumer) {
+        this.queue        = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay     = maxDelay;
+        this.consumer     = consumer;
+        this.accepted     = Metrics.counter(name, "result", "accepted");
+        this.dropped      = Metrics.counter(name, "result", "dropped");
+        this.failed       = Metrics.counter(name, "result", "failed");
+        this.running      = true;
+        this.thread       = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+
+    /**
+     * Adds the given element without blocking
+     * @param element
+     * @return false if the element was dropped because the queue is full or closed
+     */
+    public boolean offer(final T element) {
+        if (running && queue.offer(element)) {
+            accepted.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    public int size() { return queue.size(); }
+
+    public long getDropped() { return (long) dropped.count(); }
+
+    /**
+     * Stops accepting elements and hands the remaining elements to the consumer
+     * @param timeout Max time in milliseconds to wait for the remaining elements to be consumed
+     */
+    public void close(final long timeout) {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private void run() {
+        while (running) {
+            final List<T> batch = new ArrayList<>(maxBatchSize);
+            try {
+                final T first = queue.poll(maxDelay, TimeUnit.MILLISECONDS);
+                if (null == first) { continue; }
+                batch.add(first);
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelay);
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    if (batch.size() >= maxBatchSize) { break; }
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) { break; }
+                    final T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (null == next) { break; }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Closed, the remaining elements are consumed below
+            }
+            consume(batch);
+        }
+        final List<T> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0 ; i < remaining.size() ; i += maxBatchSize) {
+            consume(remaining.subList(i, Math.min(i + maxBatchSize, remaining.size())));
+        }
+    }
+
+    private void consume(final List<T> batch) {
+        if (batch.isEmpty()) { return; }
+        try {
+            consumer.accept(batch);
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            LOGGER.error("Error consuming batch of {} elements. {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import eu.hansolo.jdktools.util.OutputFormat;
+import io.foojay.api.pkg.Pkg;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+/**
+ * Immutable snapshot of the package catalogue of one cache generation.
+ * All parts (packages by id, the sorted package index and the json representations of the
+ * packages) are built before the snapshot is published, so readers that fetch the snapshot
+ * once always see a complete and consistent catalogue without locking.
+ * The json representations are kept as utf-8 encoded fragments, which takes half the memory
+ * of strings and allows to write responses from the fragments without encoding them again.
+ */
+public class CacheSnapshot {
+    public  static final CacheSnapshot                                EMPTY         = new CacheSnapshot(0, Map.of(), PkgIndex.EMPTY, Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+    private        final long                                         generation;
+    private        final Map<String, Pkg>                             pkgs;
+    private        final PkgIndex                                     pkgIndex;
+    private        final Map<String, byte[]>                          jsonV2;
+    private        final Map<String, byte[]>                          jsonV3;
+    private        final Map<String, byte[]>                          jsonMinimizedV3;
+    private        final Map<String, Long>                            contentHashesV2;
+    private        final Map<String, Long>                            contentHashesV3;
+    private        final Map<String, Long>                            contentHashesMinimizedV3;
+    private        final Map<String, CompletableFuture<ResponseBlob>> responseBlobs = new ConcurrentHashMap<>();
+
+
+    public CacheSnapshot(final long generation, final Map<String, Pkg> pkgs, final PkgIndex pkgIndex, final Map<String, byte[]> jsonV2, final Map<String, byte[]> jsonV3, final Map<String, byte[]> jsonMinimizedV3,
+                         final Map<String, Long> contentHashesV2, final Map<String, Long> contentHashesV3, final Map<String, Long> contentHashesMinimizedV3) {
+        this.generation               = generation;
+        this.pkgs                     = Collections.unmodifiableMap(pkgs);
+        this.pkgIndex                 = pkgIndex;
+        this.jsonV2                   = Collections.unmodifiableMap(jsonV2);
+        this.jsonV3                   = Collections.unmodifiableMap(jsonV3);
+        this.jsonMinimizedV3          = Collections.unmodifiableMap(jsonMinimizedV3);
+        this.contentHashesV2          = Collections.unmodifiableMap(contentHashesV2);
+        this.contentHashesV3          = Collections.unmodifiableMap(contentHashesV3);
+        this.contentHashesMinimizedV3 = Collections.unmodifiableMap(contentHashesMinimizedV3);
+    }
+
+
+    /**
+     * Builds a snapshot of the given packages including their index in Pkg.DEFAULT_ORDER and their json representations
+     * @param generation
+     * @param pkgs Packages by id
+     * @return a snapshot of the given packages
+     */
+    public static CacheSnapshot of(final long generation, final Map<String, Pkg> pkgs) { return of(generation, pkgs, EMPTY); }
+    /**
+     * Builds a snapshot of the given packages and reuses the json representations of all packages that
+     * are the same instances as in the given previous snapshot, so only new or changed packages are serialized
+     * @param generation
+     * @param pkgs Packages by id
+     * @param previous
+     * @return a snapshot of the given packages
+     */
+    public static CacheSnapshot of(final long generation, final Map<String, Pkg> pkgs, final CacheSnapshot previous) {
+        final List<Pkg>           sortedPkgs      = pkgs.values().parallelStream().sorted(Pkg.DEFAULT_ORDER).collect(Collectors.toList());
+        final Map<String, byte[]> jsonV2          = toJson(pkgs, previous, previous.jsonV2, OutputFormat.REDUCED_COMPRESSED, Constants.API_VERSION_V2);
+        final Map<String, byte[]> jsonV3          = toJson(pkgs, previous, previous.jsonV3, OutputFormat.REDUCED_COMPRESSED, Constants.API_VERSION_V3);
+        final Map<String, byte[]> jsonMinimizedV3 = toJson(pkgs, previous, previous.jsonMinimizedV3, OutputFormat.MINIMIZED, Constants.API_VERSION_V3);
+        return new CacheSnapshot(generation, pkgs, new PkgIndex(sortedPkgs), jsonV2, jsonV3, jsonMinimizedV3,
+                                 toContentHashes(jsonV2, previous.jsonV2, previous.contentHashesV2),
+                                 toContentHashes(jsonV3, previous.jsonV3, previous.contentHashesV3),
+                                 toContentHashes(jsonMinimizedV3, previous.jsonMinimizedV3, previous.contentHashesMinimizedV3));
+    }
+
+
+    public long getGeneration() { return generation; }
+
+    public Map<String, Pkg> getPkgs() { return pkgs; }
+
+    public PkgIndex getPkgIndex() { return pkgIndex; }
+
+    public Map<String, byte[]> getJsonV2() { return jsonV2; }
+    public String getJsonV2(final String id) { return toString(jsonV2.get(id)); }
+
+    public Map<String, byte[]> getJsonV3() { return jsonV3; }
+    public String getJsonV3(final String id) { return toString(jsonV3.get(id)); }
+
+    public Map<String, byte[]> getJsonMinimizedV3() { return jsonMinimizedV3; }
+    public String getJsonMinimizedV3(final String id) { return toString(jsonMinimizedV3.get(id)); }
+
+    /**
+     * Returns the strong ETag of the given list of packages (e.g. a query result) in the given representation.
+     * It is derived from the api version, the output format and the content hashes of the json fragments of the
+     * packages in the given order that are served in this representation, so it changes as soon as one of the
+     * served fragments changes or the packages in the list change. Packages in representations that are not
+     * kept as fragments are serialized to compute their hash.
+     * @param pkgs
+     * @param apiVersion Constants.API_VERSION_V2 or Constants.API_VERSION_V3
+     * @param outputFormat
+     * @return the strong ETag of the given list of packages
+     */
+    public String getETag(final Collection<Pkg> pkgs, final String apiVersion, final OutputFormat outputFormat) {
+        final MessageDigest     digest        = createDigest();
+        final ByteBuffer        buffer        = ByteBuffer.allocate(Long.BYTES);
+        final Map<String, Long> contentHashes = getContentHashes(apiVersion, outputFormat);
+        digest.update(String.join("|", apiVersion, outputFormat.name(), "").getBytes(StandardCharsets.UTF_8));
+        for (Pkg pkg : pkgs) {
+            final Long contentHash = null == contentHashes ? null : contentHashes.get(pkg.getId());
+            if (null == contentHash) {
+                digest.update(pkg.getId().getBytes(StandardCharsets.UTF_8));
+                if (null == contentHashes) { digest.update(pkg.toString(outputFormat, apiVersion).getBytes(StandardCharsets.UTF_8)); }
+            } else {
+                buffer.clear();
+                digest.update(buffer.putLong(contentHash).array());
+            }
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    public int size() { return pkgs.size(); }
+
+    /**
+     * Returns the response blob with the given key, the blob is created by the given factory the first
+     * time it is requested and kept as long as this snapshot is the current one.
+     * The blob is built outside of the map, concurrent requests for the same key wait for the first one
+     * and requests for other keys are not blocked. A failed build is not kept, so the next request tries again.
+     * @param key
+     * @param factory
+     * @return the response blob with the given key
+     */
+    public ResponseBlob getResponseBlob(final String key, final Function<CacheSnapshot, ResponseBlob> factory) {
+        CompletableFuture<ResponseBlob> responseBlob = responseBlobs.get(key);
+        if (null == responseBlob) {
+            final CompletableFuture<ResponseBlob> newResponseBlob = new CompletableFuture<>();
+            responseBlob = responseBlobs.putIfAbsent(key, newResponseBlob);
+            if (null == responseBlob) {
+                try {
+                    newResponseBlob.complete(factory.apply(this));
+                } catch (RuntimeException | Error e) {
+                    responseBlobs.remove(key, newResponseBlob);
+                    newResponseBlob.completeExceptionally(e);
+                    throw e;
+                }
+                return newResponseBlob.join();
+            }
+        }
+        return responseBlob.join();
+    }
+
+
+    private static Map<String, byte[]> toJson(final Map<String, Pkg> pkgs, final CacheSnapshot previous, final Map<String, byte[]> previousJson, final OutputFormat outputFormat, final String apiVersion) {
+        return pkgs.entrySet().parallelStream().collect(Collectors.toConcurrentMap(Entry::getKey, entry -> {
+            final byte[] json = previous.pkgs.get(entry.getKey()) == entry.getValue() ? previousJson.get(entry.getKey()) : null;
+            return null == json ? entry.getValue().toString(outputFormat, apiVersion).getBytes(StandardCharsets.UTF_8) : json;
+        }, (json1, json2) -> json1, ConcurrentHashMap::new));
+    }
+
+    /**
+     * Returns the content hashes of the json fragments that are served in the given representation,
+     * V2 uses the same fields for the reduced compressed and the minimized output format
+     * @param apiVersion
+     * @param outputFormat
+     * @return the content hashes of the served json fragments or null if the representation is not kept as fragments
+     */
+    private Map<String, Long> getContentHashes(final String apiVersion, final OutputFormat outputFormat) {
+        if (OutputFormat.REDUCED_COMPRESSED != outputFormat && OutputFormat.MINIMIZED != outputFormat) { return null; }
+        if (Constants.API_VERSION_V2.equals(apiVersion)) { return contentHashesV2; }
+        if (!Constants.API_VERSION_V3.equals(apiVersion)) { return null; }
+        return OutputFormat.MINIMIZED == outputFormat ? contentHashesMinimizedV3 : contentHashesV3;
+    }
+
+    private static Map<String, Long> toContentHashes(final Map<String, byte[]> json, final Map<String, byte[]> previousJson, final Map<String, Long> previousContentHashes) {
+        return json.entrySet().parallelStream().collect(Collectors.toConcurrentMap(Entry::getKey, entry -> {
+            final Long contentHash = previousJson.get(entry.getKey()) == entry.getValue() ? previousContentHashes.get(entry.getKey()) : null;
+            return null == contentHash ? ByteBuffer.wrap(createDigest().digest(entry.getValue())).getLong() : contentHash;
+        }, (hash1, hash2) -> hash1, ConcurrentHashMap::new));
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toString(final byte[] json) { return null == json ? null : new String(json, StandardCharsets.UTF_8); }
+}
@@ -36,6 +36,25 @@ public enum Config {
     public static final String FOOJAY_API_MONGODB_USER     = "FOOJAY_API_MONGODB_USER";
     public static final String FOOJAY_API_MONGODB_PASSWORD = "FOOJAY_API_MONGODB_PASSWORD";
 
+    public static final String FOOJAY_API_QUERY_CACHE_SIZE = "FOOJAY_API_QUERY_CACHE_SIZE";
+    public static final String FOOJAY_API_FULL_SYNC_INTERVAL = "FOOJAY_API_FULL_SYNC_INTERVAL";
+    public static final String FOOJAY_API_MONGODB_LOADER_THREADS = "FOOJAY_API_MONGODB_LOADER_THREADS";
+    public static final String FOOJAY_API_MONGODB_BATCH_SIZE     = "FOOJAY_API_MONGODB_BATCH_SIZE";
+    public static final String FOOJAY_API_MONGODB_WRITE_BATCH_SIZE = "FOOJAY_API_MONGODB_WRITE_BATCH_SIZE";
+    public static final String FOOJAY_API_DOWNLOADS_FLUSH_INTERVAL = "FOOJAY_API_DOWNLOADS_FLUSH_INTERVAL";
+    public static final String FOOJAY_API_USER_AGENT_QUEUE_SIZE    = "FOOJAY_API_USER_AGENT_QUEUE_SIZE";
+    public static final String FOOJAY_API_USER_AGENT_BATCH_SIZE    = "FOOJAY_API_USER_AGENT_BATCH_SIZE";
+    public static final String FOOJAY_API_USER_AGENT_BATCH_DELAY   = "FOOJAY_API_USER_AGENT_BATCH_DELAY";
+    public static final String FOOJAY_API_IP_COUNTRY_TABLE         = "FOOJAY_API_IP_COUNTRY_TABLE";
+    public static final String FOOJAY_API_IP_COUNTRY_CACHE_SIZE    = "FOOJAY_API_IP_COUNTRY_CACHE_SIZE";
+    public static final String FOOJAY_API_IP_COUNTRY_REMOTE_LOOKUP = "FOOJAY_API_IP_COUNTRY_REMOTE_LOOKUP";
+    public static final String FOOJAY_API_HTTP_CLIENT_THREADS      = "FOOJAY_API_HTTP_CLIENT_THREADS";
+    public static final String FOOJAY_API_SIZE_REQUESTS_PER_HOST   = "FOOJAY_API_SIZE_REQUESTS_PER_HOST";
+    public static final String FOOJAY_API_URL_METADATA_MAX_AGE     = "FOOJAY_API_URL_METADATA_MAX_AGE";
+    public static final String FOOJAY_API_UPDATE_THREADS           = "FOOJAY_API_UPDATE_THREADS";
+    public static final String FOOJAY_API_UPDATE_REQUESTS_PER_HOST = "FOOJAY_API_UPDATE_REQUESTS_PER_HOST";
+    public static final String FOOJAY_API_VIRTUAL_THREADS          = "FOOJAY_API_VIRTUAL_THREADS";
+
     public static final String FOOJAY_MQTT_BROKER          = "FOOJAY_MQTT_BROKER";
     public static final String FOOJAY_MQTT_PORT            = "FOOJAY_MQTT_PORT";
     public static final String FOOJAY_MQTT_USER            = "FOOJAY_MQTT_USER";
@@ -100,6 +119,249 @@ public enum Config {
         }
     }
 
+    public Integer getFoojayMongoDbLoaderThreads() {
+        final int    defaultThreads = Runtime.getRuntime().availableProcessors();
+        final String threadsString  = System.getenv(FOOJAY_API_MONGODB_LOADER_THREADS);
+        if (null == threadsString) {
+            return defaultThreads;
+        } else {
+            try {
+                Integer threads = Integer.valueOf(threadsString);
+                return threads > 0 ? threads : defaultThreads;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_MONGODB_LOADER_THREADS);
+                return defaultThreads;
+            }
+        }
+    }
+
+    public Integer getFoojayMongoDbBatchSize() {
+        final String batchSizeString = System.getenv(FOOJAY_API_MONGODB_BATCH_SIZE);
+        if (null == batchSizeString) {
+            return 1000;
+        } else {
+            try {
+                Integer batchSize = Integer.valueOf(batchSizeString);
+                return batchSize;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_MONGODB_BATCH_SIZE);
+                return 1000;
+            }
+        }
+    }
+
+    public Integer getFoojayMongoDbWriteBatchSize() {
+        final String batchSizeString = System.getenv(FOOJAY_API_MONGODB_WRITE_BATCH_SIZE);
+        if (null == batchSizeString) {
+            return 500;
+        } else {
+            try {
+                Integer batchSize = Integer.valueOf(batchSizeString);
+                return batchSize > 0 ? batchSize : 500;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_MONGODB_WRITE_BATCH_SIZE);
+                return 500;
+            }
+        }
+    }
+
+    /**
+     * Returns the interval in seconds in which the counted downloads per day will be written to the database
+     * @return the interval in seconds in which the counted downloads per day will be written to the database
+     */
+    public Integer getFoojayApiDownloadsFlushInterval() {
+        final String intervalString = System.getenv(FOOJAY_API_DOWNLOADS_FLUSH_INTERVAL);
+        if (null == intervalString) {
+            return 10;
+        } else {
+            try {
+                Integer interval = Integer.valueOf(intervalString);
+                return interval > 0 ? interval : 10;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_DOWNLOADS_FLUSH_INTERVAL);
+                return 10;
+            }
+        }
+    }
+
+    /**
+     * Returns the max number of user-agent downloads that are queued to be written, further downloads will be dropped
+     * @return the max number of user-agent downloads that are queued to be written
+     */
+    public Integer getFoojayApiUserAgentQueueSize() {
+        final String valueString = System.getenv(FOOJAY_API_USER_AGENT_QUEUE_SIZE);
+        if (null == valueString) {
+            return 10000;
+        } else {
+            try {
+                Integer value = Integer.valueOf(valueString);
+                return value > 0 ? value : 10000;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_USER_AGENT_QUEUE_SIZE);
+                return 10000;
+            }
+        }
+    }
+
+    public Integer getFoojayApiUserAgentBatchSize() {
+        final String valueString = System.getenv(FOOJAY_API_USER_AGENT_BATCH_SIZE);
+        if (null == valueString) {
+            return 500;
+        } else {
+            try {
+                Integer value = Integer.valueOf(valueString);
+                return value > 0 ? value : 500;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_USER_AGENT_BATCH_SIZE);
+                return 500;
+            }
+        }
+    }
+
+    /**
+     * Returns the max time in milliseconds a user-agent download is queued before it will be written
+     * @return the max time in milliseconds a user-agent download is queued before it will be written
+     */
+    public Integer getFoojayApiUserAgentBatchDelay() {
+        final String valueString = System.getenv(FOOJAY_API_USER_AGENT_BATCH_DELAY);
+        if (null == valueString) {
+            return 1000;
+        } else {
+            try {
+                Integer value = Integer.valueOf(valueString);
+                return value > 0 ? value : 1000;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_USER_AGENT_BATCH_DELAY);
+                return 1000;
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the csv file with the networks in CIDR notation and their country codes
+     * @return the path of the csv file with the networks in CIDR notation and their country codes
+     */
+    public String getFoojayApiIpCountryTable() {
+        return System.getenv(FOOJAY_API_IP_COUNTRY_TABLE);
+    }
+
+    public Integer getFoojayApiIpCountryCacheSize() {
+        final String sizeString = System.getenv(FOOJAY_API_IP_COUNTRY_CACHE_SIZE);
+        if (null == sizeString) {
+            return 10000;
+        } else {
+            try {
+                Integer size = Integer.valueOf(sizeString);
+                return size;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_IP_COUNTRY_CACHE_SIZE);
+                return 10000;
+            }
+        }
+    }
+
+    /**
+     * Returns true if ip addresses that are not in the ip country table should be looked up remotely
+     * @return true if ip addresses that are not in the ip country table should be looked up remotely
+     */
+    public Boolean getFoojayApiIpCountryRemoteLookup() {
+        final String remoteLookupString = System.getenv(FOOJAY_API_IP_COUNTRY_REMOTE_LOOKUP);
+        if (null == remoteLookupString) {
+            return true;
+        } else {
+            return Boolean.valueOf(remoteLookupString);
+        }
+    }
+
+    public Integer getFoojayApiHttpClientThreads() {
+        final int    defaultThreads = Runtime.getRuntime().availableProcessors() * 2;
+        final String threadsString  = System.getenv(FOOJAY_API_HTTP_CLIENT_THREADS);
+        if (null == threadsString) {
+            return defaultThreads;
+        } else {
+            try {
+                Integer threads = Integer.valueOf(threadsString);
+                return threads > 0 ? threads : defaultThreads;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_HTTP_CLIENT_THREADS);
+                return defaultThreads;
+            }
+        }
+    }
+
+    public Integer getFoojayApiSizeRequestsPerHost() {
+        final int    defaultRequests = 8;
+        final String requestsString  = System.getenv(FOOJAY_API_SIZE_REQUESTS_PER_HOST);
+        if (null == requestsString) {
+            return defaultRequests;
+        } else {
+            try {
+                Integer requests = Integer.valueOf(requestsString);
+                return requests > 0 ? requests : defaultRequests;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_SIZE_REQUESTS_PER_HOST);
+                return defaultRequests;
+            }
+        }
+    }
+
+    public Integer getFoojayApiUrlMetadataMaxAge() {
+        final int    defaultMaxAge = 1440;
+        final String maxAgeString  = System.getenv(FOOJAY_API_URL_METADATA_MAX_AGE);
+        if (null == maxAgeString) {
+            return defaultMaxAge;
+        } else {
+            try {
+                Integer maxAge = Integer.valueOf(maxAgeString);
+                return maxAge > 0 ? maxAge : defaultMaxAge;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_URL_METADATA_MAX_AGE);
+                return defaultMaxAge;
+            }
+        }
+    }
+
+    public Integer getFoojayApiUpdateThreads() {
+        final int    defaultThreads = 4;
+        final String threadsString  = System.getenv(FOOJAY_API_UPDATE_THREADS);
+        if (null == threadsString) {
+            return defaultThreads;
+        } else {
+            try {
+                Integer threads = Integer.valueOf(threadsString);
+                return threads > 0 ? threads : defaultThreads;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_UPDATE_THREADS);
+                return defaultThreads;
+            }
+        }
+    }
+
+    public Integer getFoojayApiUpdateRequestsPerHost() {
+        final int    defaultRequests = 1;
+        final String requestsString  = System.getenv(FOOJAY_API_UPDATE_REQUESTS_PER_HOST);
+        if (null == requestsString) {
+            return defaultRequests;
+        } else {
+            try {
+                Integer requests = Integer.valueOf(requestsString);
+                return requests > 0 ? requests : defaultRequests;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_UPDATE_REQUESTS_PER_HOST);
+                return defaultRequests;
+            }
+        }
+    }
+
+    public Boolean getFoojayApiVirtualThreads() {
+        final String virtualThreadsString = System.getenv(FOOJAY_API_VIRTUAL_THREADS);
+        if (null == virtualThreadsString) {
+            return false;
+        } else {
+            return Boolean.valueOf(virtualThreadsString);
+        }
+    }
+
     public String getFoojayMongoDbUser() {
         final String mongoDbUser = System.getenv(FOOJAY_API_MONGODB_USER);
         if (null == mongoDbUser) {
@@ -120,6 +382,41 @@ public enum Config {
         }
     }
 
+    public Integer getFoojayApiQueryCacheSize() {
+        final String sizeString = System.getenv(FOOJAY_API_QUERY_CACHE_SIZE);
+        if (null == sizeString) {
+            return 512;
+        } else {
+            try {
+                Integer size = Integer.valueOf(sizeString);
+                return size;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_QUERY_CACHE_SIZE);
+                return 512;
+            }
+        }
+    }
+
+    /**
+     * Returns the interval in minutes after which the cache will be fully synchronized with
+     * the database instead of only reloading the distributions that have been updated
+     * @return the interval in minutes between full synchronizations of the cache with the database
+     */
+    public Integer getFoojayApiFullSyncInterval() {
+        final String intervalString = System.getenv(FOOJAY_API_FULL_SYNC_INTERVAL);
+        if (null == intervalString) {
+            return 60;
+        } else {
+            try {
+                Integer interval = Integer.valueOf(intervalString);
+                return interval;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Environment variable {} contains wrong value.", FOOJAY_API_FULL_SYNC_INTERVAL);
+                return 60;
+            }
+        }
+    }
+
 
     public String getFoojayMqttBroker() {
         final String mqttBroker = System.getenv(FOOJAY_MQTT_BROKER);
@@ -64,6 +64,7 @@ public class Constants {
     public static final String            UPDATER_STATE_COLLECTION               = "updaterState";
     public static final String            SENTINEL_COLLECTION                    = "sentinel";
     public static final String            MAJOR_VERSIONS_COLLECTION              = "majorVersions";
+    public static final String            URL_METADATA_COLLECTION                = "urlMetadata";
 
     public static final String            ENDPOINT_PACKAGES                      = "packages";
     public static final String            ENDPOINT_EPHEMERAL_IDS                 = "ephemeral_ids";
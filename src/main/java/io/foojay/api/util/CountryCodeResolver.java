@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Resolves the country code of ipv4 addresses with a longest prefix match against a table of
+ * networks in CIDR notation, the table is loaded from the csv file (lines like 1.0.0.0/24,au)
+ * given in FOOJAY_API_IP_COUNTRY_TABLE.
+ * The networks are kept in one sorted int array per prefix length, so a lookup is at most one binary
+ * search per prefix length starting with the most specific one. Recently resolved addresses are kept
+ * in a LRU cache in front of the table. Addresses that are not in the table (e.g. ipv6) are resolved
+ * by the remote lookup if it is enabled with FOOJAY_API_IP_COUNTRY_REMOTE_LOOKUP.
+ */
+public enum CountryCodeResolver {
+    INSTANCE;
+
+    private static final Logger                     LOGGER = LoggerFactory.getLogger(CountryCodeResolver.class);
+    private        final QueryCache<String, String> cache;
+    private        final boolean                    remoteLookup;
+    private volatile     Table                      table;
+
+
+    CountryCodeResolver() {
+        cache        = new QueryCache<>("discoapi.countrycode.cache", Config.INSTANCE.getFoojayApiIpCountryCacheSize());
+        remoteLookup = Config.INSTANCE.getFoojayApiIpCountryRemoteLookup();
+        table        = Table.EMPTY;
+        final String tablePath = Config.INSTANCE.getFoojayApiIpCountryTable();
+        if (null != tablePath) { load(Path.of(tablePath)); }
+    }
+
+
+    /**
+     * Returns the lower case country code of the given ip address or an empty string if it could not be resolved
+     * @param ipAddress
+     * @return the lower case country code of the given ip address or an empty string if it could not be resolved
+     */
+    public String getCountryCode(final String ipAddress) {
+        if (null == ipAddress || ipAddress.isEmpty()) { return ""; }
+        final String cached = cache.get(ipAddress, 0);
+        if (null != cached) { return cached; }
+
+        String countryCode = lookup(ipAddress);
+        if (countryCode.isEmpty() && remoteLookup) { countryCode = Helper.getCountryCodeFromRemote(ipAddress); }
+        if (!countryCode.isEmpty()) { cache.put(ipAddress, countryCode, 0); }
+        return countryCode;
+    }
+
+    /**
+     * Returns the lower case country code of the given ip address like getCountryCode() but does not block
+     * on the remote lookup, so the addresses of a batch can be resolved concurrently
+     * @param ipAddress
+     * @return the lower case country code of the given ip address or an empty string if it could not be resolved
+     */
+    public CompletableFuture<String> getCountryCodeAsync(final String ipAddress) {
+        if (null == ipAddress || ipAddress.isEmpty()) { return CompletableFuture.completedFuture(""); }
+        final String cached = cache.get(ipAddress, 0);
+        if (null != cached) { return CompletableFuture.completedFuture(cached); }
+
+        final String countryCode = lookup(ipAddress);
+        if (!countryCode.isEmpty() || !remoteLookup) {
+            if (!countryCode.isEmpty()) { cache.put(ipAddress, countryCode, 0); }
+            return CompletableFuture.completedFuture(countryCode);
+        }
+        return Helper.getCountryCodeFromRemoteAsync(ipAddress).handle((remoteCountryCode, throwable) -> {
+            if (null != throwable || null == remoteCountryCode) {
+                LOGGER.debug("Error resolving country code of {}. {}", ipAddress, null == throwable ? "" : throwable.getMessage());
+                return "";
+            }
+            if (!remoteCountryCode.isEmpty()) { cache.put(ipAddress, remoteCountryCode, 0); }
+            return remoteCountryCode;
+        });
+    }
+
+    /**
+     * Loads the table of networks from the given csv file and replaces the current table
+     * @param path
+     * @return true if the table was loaded
+     */
+    public boolean load(final Path path) {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            final Table.Builder builder = new Table.Builder();
+            String line;
+            while (null != (line = reader.readLine())) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) { continue; }
+                final int comma = line.indexOf(',');
+                final int slash = line.indexOf('/');
+                if (comma < 0 || slash < 0 || slash > comma) { continue; }
+                final long network = parseIpv4(line.substring(0, slash));
+                if (network < 0) { continue; }
+                try {
+                    final int prefixLength = Integer.parseInt(line.substring(slash + 1, comma).trim());
+                    if (prefixLength < 0 || prefixLength > 32) { continue; }
+                    builder.add((int) network, prefixLength, line.substring(comma + 1).trim().toLowerCase());
+                } catch (NumberFormatException e) {
+                    // Skip invalid lines
+                }
+            }
+            table = builder.build();
+            cache.clear();
+            LOGGER.debug("Loaded {} networks from ip country table {}", table.size(), path);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Error loading ip country table {}. {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    private String lookup(final String ipAddress) {
+        final long address = parseIpv4(ipAddress);
+        return address >= 0 ? table.lookup((int) address) : "";
+    }
+
+    /**
+     * Returns the given ipv4 address as unsigned int value or -1 if it is not a valid ipv4 address
+     * @param ipAddress
+     * @return the given ipv4 address as unsigned int value or -1 if it is not a valid ipv4 address
+     */
+    static long parseIpv4(final String ipAddress) {
+        long address = 0;
+        int  octet   = -1;
+        int  dots    = 0;
+        for (int i = 0 ; i < ipAddress.length() ; i++) {
+            final char c = ipAddress.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) { return -1; }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                address = (address << 8) | octet;
+                octet   = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) { return -1; }
+        return (address << 8) | octet;
+    }
+
+
+    static final class Table {
+        static final Table EMPTY = new Table(new int[0], new int[0][], new short[0][], new String[0], 0);
+
+        private final int[]     prefixLengths;  // Prefix lengths that are in the table, most specific first
+        private final int[][]   networks;       // Sorted networks per prefix length
+        private final short[][] countries;      // Index of the country per network
+        private final String[]  countryCodes;
+        private final int       size;
+
+
+        private Table(final int[] prefixLengths, final int[][] networks, final short[][] countries, final String[] countryCodes, final int size) {
+            this.prefixLengths = prefixLengths;
+            this.networks      = networks;
+            this.countries     = countries;
+            this.countryCodes  = countryCodes;
+            this.size          = size;
+        }
+
+
+        String lookup(final int address) {
+            for (int i = 0 ; i < prefixLengths.length ; i++) {
+                final int mask  = prefixLengths[i] == 0 ? 0 : -1 << (32 - prefixLengths[i]);
+                final int index = Arrays.binarySearch(networks[i], address & mask);
+                if (index >= 0) { return countryCodes[countries[i][index]]; }
+            }
+            return "";
+        }
+
+        int size() { return size; }
+
+
+        static final class Builder {
+            private final Map<Integer, Map<Integer, Short>> networksPerPrefixLength = new HashMap<>();
+            private final Map<String, Short>                countryIndex            = new HashMap<>();
+            private final List<String>                      countryCodes            = new ArrayList<>();
+
+
+            void add(final int network, final int prefixLength, final String countryCode) {
+                if (countryCode.isEmpty()) { return; }
+                final short country = countryIndex.computeIfAbsent(countryCode, code -> {
+                    countryCodes.add(code);
+                    return (short) (countryCodes.size() - 1);
+                });
+                final int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+                networksPerPrefixLength.computeIfAbsent(prefixLength, length -> new HashMap<>()).put(network & mask, country);
+            }
+
+            Table build() {
+                final int[]     prefixLengths = networksPerPrefixLength.keySet().stream().sorted((l1, l2) -> Integer.compare(l2, l1)).mapToInt(Integer::intValue).toArray();
+                final int[][]   networks      = new int[prefixLengths.length][];
+                final short[][] countries     = new short[prefixLengths.length][];
+                int size = 0;
+                for (int i = 0 ; i < prefixLengths.length ; i++) {
+                    final Map<Integer, Short> networksOfLength = networksPerPrefixLength.get(prefixLengths[i]);
+                    networks[i]  = networksOfLength.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+                    countries[i] = new short[networks[i].length];
+                    for (int j = 0 ; j < networks[i].length ; j++) { countries[i][j] = networksOfLength.get(networks[i][j]); }
+                    size += networks[i].length;
+                }
+                return new Table(prefixLengths, networks, countries, countryCodes.toArray(new String[0]), size);
+            }
+        }
+    }
+}
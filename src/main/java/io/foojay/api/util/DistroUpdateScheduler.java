@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.foojay.api.MongoDbManager;
+import io.foojay.api.distribution.Distribution;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.Pkg;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+
+/**
+ * Updates the maintained distributions concurrently, each one as soon as its updateIntervalInMinutes has passed.
+ * Due distributions run in parallel on FOOJAY_API_UPDATE_THREADS threads, so a full refresh takes about as
+ * long as the slowest distribution instead of the sum of all of them.
+ * Distributions that are fetched from the same host share FOOJAY_API_UPDATE_REQUESTS_PER_HOST slots, a due
+ * distribution whose host is busy is started on one of the next ticks. The next update of each distribution
+ * is delayed by a random jitter of up to 10% of its interval (max. 5 minutes), so distributions with the same
+ * interval drift apart instead of hitting the hosts at the same time.
+ * With virtual threads (see ExecutorProvider) the number of concurrent updates is only limited by the host slots.
+ * The packages returned by the updater are upserted, the update time is only stored with MongoDbManager.setLastUpdateForDistro()
+ * if packages have been inserted or modified and never if storing a package failed, so the api instances only reload
+ * distributions that really changed.
+ * The updater application creates the scheduler once, calls start() and calls stop() on shutdown. new DistroUpdateScheduler()
+ * updates all distributions with Distribution.getAllPkgs(true), distributions that do not implement it return no packages.
+ */
+public class DistroUpdateScheduler {
+    private static final Logger                                       LOGGER     = LoggerFactory.getLogger(DistroUpdateScheduler.class);
+    private static final long                                         TICK       = 30;
+    private static final long                                         MAX_JITTER = 300;
+    private        final Function<Distro, List<Pkg>>                  updater;
+    private        final Function<Collection<Pkg>, List<BatchResult>> store;
+    private        final Consumer<Distro>                             lastUpdateStore;
+    private        final List<Distro>                                 distros;
+    private        final int                                          requestsPerHost;
+    private        final ExecutorService                              executor;
+    private        final ScheduledExecutorService                     ticker;
+    private        final Map<Distro, Instant>                         nextUpdates;
+    private        final Map<String, Semaphore>                       hosts;
+    private        final Set<Distro>                                  running;
+    private        final Counter                                      succeeded;
+    private        final Counter                                      failed;
+    private        final Counter                                      deferred;
+
+
+    /**
+     * Updates all distributions with the new packages returned by their getAllPkgs(true)
+     */
+    public DistroUpdateScheduler() {
+        this(DistroUpdateScheduler::getNewPkgs, EnumSet.allOf(Distro.class));
+    }
+
+    /**
+     * @param updater Fetches the packages of the given distribution, e.g. all new packages
+     * @param distros The distributions that will be updated with the given updater
+     */
+    public DistroUpdateScheduler(final Function<Distro, List<Pkg>> updater, final Set<Distro> distros) {
+        this(updater, MongoDbManager.INSTANCE::upsertPkgs, MongoDbManager.INSTANCE::setLastUpdateForDistro, distros,
+             Config.INSTANCE.getFoojayApiUpdateThreads(), Config.INSTANCE.getFoojayApiUpdateRequestsPerHost());
+    }
+
+    DistroUpdateScheduler(final Function<Distro, List<Pkg>> updater, final Function<Collection<Pkg>, List<BatchResult>> store, final Consumer<Distro> lastUpdateStore,
+                          final Set<Distro> distros, final int threads, final int requestsPerHost) {
+        this.updater         = updater;
+        this.store           = store;
+        this.lastUpdateStore = lastUpdateStore;
+        this.distros         = getDistros(distros);
+        this.requestsPerHost = requestsPerHost;
+        this.executor        = ExecutorProvider.INSTANCE.newExecutor("distro-updater", threads);
+        this.ticker          = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "distro-update-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.nextUpdates     = new ConcurrentHashMap<>();
+        this.hosts           = new ConcurrentHashMap<>();
+        this.running         = ConcurrentHashMap.newKeySet();
+        this.succeeded       = Metrics.counter("discoapi.distro.updates", "result", "success");
+        this.failed          = Metrics.counter("discoapi.distro.updates", "result", "failure");
+        this.deferred        = Metrics.counter("discoapi.distro.updates", "result", "deferred");
+    }
+
+
+    /**
+     * Returns the new packages of the given distribution by calling its getAllPkgs(true)
+     * @param distro
+     * @return the new packages of the given distribution or an empty list if it does not implement getAllPkgs(true)
+     */
+    public static List<Pkg> getNewPkgs(final Distro distro) {
+        final Distribution distribution = distro.get();
+        if (null == distribution) {
+            LOGGER.debug("No updater for {} available", distro.getApiString());
+            return new ArrayList<>();
+        }
+        return distribution.getAllPkgs(true);
+    }
+
+    /**
+     * Loads the last update of each distribution from the database and starts checking for due distributions
+     */
+    public void start() {
+        final Map<Distro, Instant> lastUpdates = MongoDbManager.INSTANCE.getLastUpdatesForDistros();
+        for (Distro distro : distros) {
+            final Instant lastUpdate = lastUpdates.get(distro);
+            if (null != lastUpdate) { distro.lastUpdate.set(lastUpdate); }
+            nextUpdates.put(distro, null == lastUpdate ? Instant.now() : getNextUpdate(distro, lastUpdate));
+        }
+        ticker.scheduleWithFixedDelay(this::tick, 0, TICK, TimeUnit.SECONDS);
+        LOGGER.debug("Distro update scheduler started for {} distributions", nextUpdates.size());
+    }
+
+    /**
+     * Marks all distributions as due, they will be updated as fast as the thread and host limits allow
+     */
+    public void updateAll() {
+        final Instant now = Instant.now();
+        distros.forEach(distro -> nextUpdates.put(distro, now));
+        ticker.execute(this::tick);
+    }
+
+    /**
+     * Stops scheduling new updates, running updates get the given time in seconds to finish
+     * @param timeout
+     */
+    public void stop(final long timeout) {
+        ticker.shutdown();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, TimeUnit.SECONDS)) { executor.shutdownNow(); }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Set<Distro> getRunning() { return Set.copyOf(running); }
+
+    public Instant getNextUpdate(final Distro distro) { return nextUpdates.get(distro); }
+
+    void setNextUpdate(final Distro distro, final Instant nextUpdate) { nextUpdates.put(distro, nextUpdate); }
+
+
+    private void tick() { tick(Instant.now()); }
+    void tick(final Instant now) {
+        for (Distro distro : distros) {
+            final Instant nextUpdate = nextUpdates.getOrDefault(distro, now);
+            if (nextUpdate.isAfter(now) || running.contains(distro)) { continue; }
+
+            final Semaphore host = hosts.computeIfAbsent(getHost(distro), h -> new Semaphore(requestsPerHost));
+            if (!host.tryAcquire()) {
+                deferred.increment();
+                continue;
+            }
+            running.add(distro);
+            try {
+                executor.execute(() -> update(distro, host));
+            } catch (RuntimeException e) {
+                running.remove(distro);
+                host.release();
+                LOGGER.error("Error scheduling update of {}. {}", distro.getApiString(), e.getMessage());
+            }
+        }
+    }
+
+    private void update(final Distro distro, final Semaphore host) {
+        final long start = System.nanoTime();
+        try {
+            final List<Pkg> pkgs    = updater.apply(distro);
+            boolean         changed = false;
+            if (null != pkgs && !pkgs.isEmpty()) {
+                final List<BatchResult> results = store.apply(pkgs);
+                if (results.isEmpty() || BatchResult.getFailed(results) > 0) {
+                    // Keep the last update, the packages will be fetched and stored again with the next update
+                    nextUpdates.put(distro, getNextUpdate(distro, Instant.now()));
+                    failed.increment();
+                    LOGGER.error("Error storing {} packages of {} ({} failed)", pkgs.size(), distro.getApiString(), results.isEmpty() ? pkgs.size() : BatchResult.getFailed(results));
+                    return;
+                }
+                changed = BatchResult.getInserted(results) + BatchResult.getModified(results) > 0;
+            }
+            final Instant now = Instant.now();
+            distro.lastUpdate.set(now);
+            // Only bump the stored update time if packages changed, it is used by the api instances to reload the distribution
+            if (changed) { lastUpdateStore.accept(distro); }
+            nextUpdates.put(distro, getNextUpdate(distro, now));
+            succeeded.increment();
+            LOGGER.debug("Updated {} with {} packages in {} ms", distro.getApiString(), null == pkgs ? 0 : pkgs.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            // Try again after the next interval, a failing distribution should not be requested on every tick
+            nextUpdates.put(distro, getNextUpdate(distro, Instant.now()));
+            failed.increment();
+            LOGGER.error("Error updating {}. {}", distro.getApiString(), e.getMessage());
+        } finally {
+            running.remove(distro);
+            host.release();
+        }
+    }
+
+    static Instant getNextUpdate(final Distro distro, final Instant lastUpdate) {
+        final long interval = TimeUnit.MINUTES.toSeconds(distro.getUpdateIntervalInMinutes());
+        final long jitter   = Math.min(interval / 10, MAX_JITTER);
+        return lastUpdate.plus(Duration.ofSeconds(interval + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0)));
+    }
+
+    static String getHost(final Distro distro) {
+        try {
+            final String host = URI.create(distro.get().getPkgUrl()).getHost();
+            return null == host ? distro.getApiString() : host;
+        } catch (RuntimeException e) {
+            return distro.getApiString();
+        }
+    }
+
+    private static List<Distro> getDistros(final Set<Distro> distros) {
+        return Distro.getMaintainedAsListWithoutNoneAndNotFound()
+                     .stream()
+                     .filter(distros::contains)
+                     .filter(distro -> null != distro.get())
+                     .filter(distro -> distro.getUpdateIntervalInMinutes() > 0)
+                     .toList();
+    }
+}
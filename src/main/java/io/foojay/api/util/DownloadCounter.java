@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Distro;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * In memory counter for the number of downloads per day, distribution and major version.
+ * Downloads are counted with atomic map updates and are drained periodically to be written
+ * to the database in one update per day.
+ */
+public class DownloadCounter {
+    private final ConcurrentHashMap<Key, Long> counters = new ConcurrentHashMap<>();
+
+
+    public void increment(final String day, final Distro distro, final int majorVersion) { add(day, distro, majorVersion, 1); }
+
+    public void add(final String day, final Distro distro, final int majorVersion, final long downloads) {
+        counters.merge(new Key(day, distro, majorVersion), downloads, Long::sum);
+    }
+
+    public boolean isEmpty() { return counters.isEmpty(); }
+
+    /**
+     * Returns the downloads that have been counted since the last call and removes their counters.
+     * Each counter is removed atomically, downloads added afterwards start a new counter that
+     * will be returned by the next call.
+     * @return the downloads that have been counted since the last call
+     */
+    public Map<Key, Long> drain() {
+        final Map<Key, Long> downloads = new HashMap<>();
+        for (Key key : counters.keySet()) {
+            final Long count = counters.remove(key);
+            if (null != count && count > 0) { downloads.put(key, count); }
+        }
+        return downloads;
+    }
+
+
+    public static final class Key {
+        private final String day;
+        private final Distro distro;
+        private final int    majorVersion;
+
+
+        public Key(final String day, final Distro distro, final int majorVersion) {
+            this.day          = day;
+            this.distro       = distro;
+            this.majorVersion = majorVersion;
+        }
+
+
+        public String getDay() { return day; }
+
+        public Distro getDistro() { return distro; }
+
+        public int getMajorVersion() { return majorVersion; }
+
+        @Override public boolean equals(final Object o) {
+            if (this == o) { return true; }
+            if (o == null || getClass() != o.getClass()) { return false; }
+            final Key key = (Key) o;
+            return majorVersion == key.majorVersion && day.equals(key.day) && distro == key.distro;
+        }
+
+        @Override public int hashCode() { return Objects.hash(day, distro, majorVersion); }
+    }
+}
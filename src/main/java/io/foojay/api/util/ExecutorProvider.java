@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Creates the executors for scraping and http I/O. By default these are fixed pools of daemon platform threads.
+ * If FOOJAY_API_VIRTUAL_THREADS is true and the application runs on JDK 21 or newer, every task runs on its own
+ * virtual thread instead, which makes thousands of concurrent blocking requests (Helper.get(), httpHeadRequestSync())
+ * cheap without rewriting the distributions. The code is compiled for Java 17, so virtual threads are created via
+ * reflection and the platform thread pools stay the fallback on older runtimes.
+ */
+public enum ExecutorProvider {
+    INSTANCE;
+
+    private static final Logger  LOGGER                  = LoggerFactory.getLogger(ExecutorProvider.class);
+    private static final int     MIN_VIRTUAL_THREADS_JDK = 21;
+    private        final boolean virtualThreads;
+
+
+    ExecutorProvider() {
+        // LOGGER is not initialized yet when the enum constant is created
+        final Logger  logger    = LoggerFactory.getLogger(ExecutorProvider.class);
+        final boolean requested = Config.INSTANCE.getFoojayApiVirtualThreads();
+        if (requested && !isVirtualThreadsSupported()) {
+            logger.warn("Virtual threads need JDK {} or newer, running on JDK {} with platform threads.", MIN_VIRTUAL_THREADS_JDK, Runtime.version().feature());
+        }
+        virtualThreads = requested && isVirtualThreadsSupported();
+        logger.debug("Using {} threads for scraping and http I/O", virtualThreads ? "virtual" : "platform");
+    }
+
+
+    public boolean isVirtualThreads() { return virtualThreads; }
+
+    /**
+     * Returns a new executor in the execution mode that was selected at startup
+     * @param name Prefix of the thread names
+     * @param platformThreads Number of threads if platform threads are used
+     * @return a new executor in the execution mode that was selected at startup
+     */
+    public ExecutorService newExecutor(final String name, final int platformThreads) { return newExecutor(name, platformThreads, virtualThreads); }
+
+    /**
+     * Returns a new executor that runs each task on a new virtual thread or a fixed pool of daemon platform threads
+     * @param name Prefix of the thread names
+     * @param platformThreads Number of threads if platform threads are used
+     * @param virtual Use virtual threads, only possible on JDK 21 or newer
+     * @return a new executor that runs each task on a new virtual thread or a fixed pool of daemon platform threads
+     */
+    public static ExecutorService newExecutor(final String name, final int platformThreads, final boolean virtual) {
+        if (virtual) {
+            try {
+                return newVirtualThreadPerTaskExecutor(name);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.error("Error creating virtual thread executor {}, using platform threads. {}", name, e.getMessage());
+            }
+        }
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(platformThreads, runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        if (Runtime.version().feature() < MIN_VIRTUAL_THREADS_JDK) { return false; }
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Same as Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory()) on JDK 21
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor(final String name) throws ReflectiveOperationException {
+        final Class<?>      builderClass = Class.forName("java.lang.Thread$Builder");
+        final Object        builder      = Thread.class.getMethod("ofVirtual").invoke(null);
+        final Object        namedBuilder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+        final ThreadFactory factory      = (ThreadFactory) builderClass.getMethod("factory").invoke(namedBuilder);
+        return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+    }
+}
@@ -19,9 +19,9 @@
 
 package io.foojay.api.util;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import eu.hansolo.jdktools.Architecture;
 import eu.hansolo.jdktools.ArchiveType;
 import eu.hansolo.jdktools.OperatingSystem;
@@ -52,14 +52,16 @@ import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpClient.Redirect;
-import java.net.http.HttpClient.Version;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
@@ -86,6 +88,7 @@ import java.util.OptionalInt;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -120,8 +123,9 @@ public class Helper {
     private static final Matcher    HREF_SIG_FILE_MATCHER                  = HREF_SIG_FILE_PATTERN.matcher("");
     private static final Matcher    HREF_SHA256_FILE_MATCHER               = HREF_SHA256_FILE_PATTERN.matcher("");
     private static final Matcher    HREF_DOWNLOAD_MATCHER                  = HREF_DOWNLOAD_PATTERN.matcher("");
-    private static       HttpClient httpClient;
-    private static       HttpClient httpClientAsync;
+    private static final byte[]     ALL_PACKAGES_MSG_START                 = (CURLY_BRACKET_OPEN + QUOTES + RESULT + QUOTES + COLON + SQUARE_BRACKET_OPEN).getBytes(UTF_8);
+    private static final byte[]     ALL_PACKAGES_MSG_END                   = (SQUARE_BRACKET_CLOSE + COMMA + QUOTES + MESSAGE + QUOTES + COLON + QUOTES + QUOTES + CURLY_BRACKET_CLOSE).getBytes(UTF_8);
+    private static final byte[]     COMMA_BYTES                            = COMMA.getBytes(UTF_8);
 
 
     public static final ArchiveType getFileEnding(final String fileName) {
@@ -604,25 +608,7 @@ public class Helper {
     }
 
     public static final boolean isUriValid(final String uri) {
-        final HttpClient  httpClient = createHttpClient();
-        final HttpRequest request;
-        try {
-            request = HttpRequest.newBuilder()
-                                 .method("HEAD", HttpRequest.BodyPublishers.noBody())
-                                 .uri(URI.create(uri))
-                                 .timeout(Duration.ofSeconds(3))
-                                 .build();
-        } catch (Exception e) {
-            LOGGER.debug("Uri request: {} failed with exception: {}", uri, e);
-            return false;
-        }
-        try {
-            HttpResponse<Void> response = httpClient.send(request, BodyHandlers.discarding());
-            return 200 == response.statusCode();
-        } catch (InterruptedException | IOException e) {
-            LOGGER.debug("Uri request: {} failed with exception: {}", uri, e);
-            return false;
-        }
+        return UrlMetadataCache.INSTANCE.isUriValid(uri);
     }
 
 
@@ -630,82 +616,83 @@ public class Helper {
         return getAllPackagesMsgV2(allPkgs, downloadable, include_ea, scope, OutputFormat.REDUCED_COMPRESSED);
     }
     public static final String getAllPackagesMsgV2(final Collection<Pkg> allPkgs, final Boolean downloadable, final Boolean include_ea, final BuildScope scope, final OutputFormat outputFormat) {
-        final List<Distro>   publicDistros = null == downloadable || !downloadable ? Distro.getPublicDistros() : Distro.getPublicDistrosDirectlyDownloadable();
-        final boolean        gaOnly        = null == include_ea || !include_ea;
-        final StringBuilder  chunkBuilder  = new StringBuilder();
-        final StringBuilder  msgBuilder    = new StringBuilder();
-        final Scope          scopeToCheck  = (BuildScope.BUILD_OF_OPEN_JDK == scope || BuildScope.BUILD_OF_GRAALVM == scope) ? scope : null;
-        final Partition<Pkg> partition     = new Partition<>(allPkgs, 25000);
-
-        msgBuilder.append(CURLY_BRACKET_OPEN)
-                  .append(QUOTES).append(RESULT).append(QUOTES).append(COLON)
-                  .append(SQUARE_BRACKET_OPEN);
-
-        for (int i = 0 ; i < partition.size() ; i++) {
-            List<Pkg> chunk = partition.get(i);
-            chunkBuilder.append(chunk.parallelStream()
-                                     .filter(pkg -> null == scopeToCheck ? pkg != null : Constants.REVERSE_SCOPE_LOOKUP.get(scopeToCheck).contains(pkg.getDistribution().getDistro()))
-                                     .filter(pkg -> publicDistros.contains(pkg.getDistribution().getDistro()))
-                                     .filter(pkg -> gaOnly ? ReleaseStatus.GA == pkg.getReleaseStatus() : null != pkg.getReleaseStatus())
-                                     .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                     .map(pkg -> CacheManager.INSTANCE.jsonCacheV2.get(pkg.getId()))
-                                     .collect(Collectors.joining(COMMA)));
-            msgBuilder.append(chunkBuilder).append(COMMA);
-            chunkBuilder.setLength(0);
-        }
-        msgBuilder.setLength(msgBuilder.length() - 1);
-        msgBuilder.append(SQUARE_BRACKET_CLOSE).append(COMMA);
-        msgBuilder.append(QUOTES).append(MESSAGE).append(QUOTES).append(COLON).append(QUOTES).append(QUOTES)
-                  .append(CURLY_BRACKET_CLOSE);
-        return msgBuilder.toString();
+        final List<Pkg> pkgs = allPkgs.parallelStream().sorted(Pkg.DEFAULT_ORDER).collect(Collectors.toList());
+        return toAllPackagesMsg(pkgs, CacheManager.INSTANCE.getSnapshot().getJsonV2(), getAllPackagesFilter(downloadable, include_ea, scope));
     }
 
     public static final String getAllPackagesMsgV3(final Collection<Pkg> allPkgs, final Boolean downloadable, final Boolean include_ea, final BuildScope scope) {
         return getAllPackagesMsgV3(allPkgs, downloadable, include_ea, scope, true);
     }
     public static final String getAllPackagesMsgV3(final Collection<Pkg> allPkgs, final Boolean downloadable, final Boolean include_ea, final BuildScope scope, final boolean sorted) {
-        final List<Distro>  publicDistros = null == downloadable || !downloadable ? Distro.getPublicDistros() : Distro.getPublicDistrosDirectlyDownloadable();
-        final boolean       gaOnly        = null == include_ea || !include_ea;
-        final StringBuilder chunkBuilder  = new StringBuilder();
-        final StringBuilder msgBuilder    = new StringBuilder();
-        final Scope         scopeToCheck  = (BuildScope.BUILD_OF_OPEN_JDK == scope || BuildScope.BUILD_OF_GRAALVM == scope) ? scope : null;
-
-        msgBuilder.append(CURLY_BRACKET_OPEN)
-                  .append(QUOTES).append(RESULT).append(QUOTES).append(COLON)
-                  .append(SQUARE_BRACKET_OPEN);
-
-        Partition<Pkg> partition = new Partition<>(allPkgs, 25000);
-        if (sorted) {
-            for (int i = 0 ; i < partition.size() ; i++) {
-                List<Pkg> chunk = partition.get(i);
-                chunkBuilder.append(chunk.parallelStream()
-                                 .filter(pkg -> null == scopeToCheck ? pkg != null : Constants.REVERSE_SCOPE_LOOKUP.get(scopeToCheck).contains(pkg.getDistribution().getDistro()))
-                                 .filter(pkg -> publicDistros.contains(pkg.getDistribution().getDistro()))
-                                 .filter(pkg -> gaOnly ? ReleaseStatus.GA == pkg.getReleaseStatus() : null != pkg.getReleaseStatus())
-                                 .sorted(Comparator.comparing(Pkg::getDistributionName).reversed().thenComparing(Comparator.comparing(Pkg::getSemver).reversed()))
-                                 .map(pkg -> CacheManager.INSTANCE.jsonCacheV3.get(pkg.getId()))
-                                         .collect(Collectors.joining(COMMA)));
-                msgBuilder.append(chunkBuilder).append(COMMA);
-                chunkBuilder.setLength(0);
-    }
-        } else {
-        for (int i = 0 ; i < partition.size() ; i++) {
-            List<Pkg> chunk = partition.get(i);
-            chunkBuilder.append(chunk.parallelStream()
-                                     .filter(pkg -> null == scopeToCheck ? pkg != null : Constants.REVERSE_SCOPE_LOOKUP.get(scopeToCheck).contains(pkg.getDistribution().getDistro()))
-                                     .filter(pkg -> publicDistros.contains(pkg.getDistribution().getDistro()))
-                                     .filter(pkg -> gaOnly ? ReleaseStatus.GA == pkg.getReleaseStatus() : null != pkg.getReleaseStatus())
-                                     .map(pkg -> CacheManager.INSTANCE.jsonCacheV3.get(pkg.getId()))
-                                     .collect(Collectors.joining(COMMA)));
-            msgBuilder.append(chunkBuilder).append(COMMA);
-            chunkBuilder.setLength(0);
+        // Sort all packages before joining them, so the order is correct in the whole message
+        final Collection<Pkg> pkgs = sorted ? allPkgs.parallelStream().sorted(Pkg.DEFAULT_ORDER).collect(Collectors.toList()) : allPkgs;
+        return toAllPackagesMsg(pkgs, CacheManager.INSTANCE.getSnapshot().getJsonV3(), getAllPackagesFilter(downloadable, include_ea, scope));
+    }
+
+    /**
+     * Streams the all packages message of all packages in the current cache snapshot to the given output stream.
+     * The packages are taken from the package index of the snapshot which is already sorted, so the json fragments
+     * are written one by one in the correct order and the memory needed does not depend on the size of the catalogue.
+     * The given stream will be flushed but not closed.
+     * @param outputStream
+     * @param downloadable
+     * @param include_ea
+     * @param scope
+     * @throws IOException
+     */
+    public static final void writeAllPackagesMsgV2(final OutputStream outputStream, final Boolean downloadable, final Boolean include_ea, final BuildScope scope) throws IOException {
+        writeAllPackagesMsg(outputStream, CacheManager.INSTANCE.getSnapshot(), Constants.API_VERSION_V2, downloadable, include_ea, scope);
+    }
+    public static final void writeAllPackagesMsgV3(final OutputStream outputStream, final Boolean downloadable, final Boolean include_ea, final BuildScope scope) throws IOException {
+        writeAllPackagesMsg(outputStream, CacheManager.INSTANCE.getSnapshot(), Constants.API_VERSION_V3, downloadable, include_ea, scope);
+    }
+    public static final void writeAllPackagesMsg(final OutputStream outputStream, final CacheSnapshot snapshot, final String apiVersion, final Boolean downloadable, final Boolean include_ea, final BuildScope scope) throws IOException {
+        final Map<String, byte[]>  json = Constants.API_VERSION_V2.equals(apiVersion) ? snapshot.getJsonV2() : snapshot.getJsonV3();
+        final BufferedOutputStream out  = new BufferedOutputStream(outputStream, 64 * 1024);
+        writeAllPackagesMsg(out, snapshot.getPkgIndex().getPkgs(), json, getAllPackagesFilter(downloadable, include_ea, scope));
+        out.flush();
+    }
+
+    /**
+     * Only meant for callers that need the message as string, all other callers should stream it
+     * with writeAllPackagesMsg().
+     */
+    private static String toAllPackagesMsg(final Collection<Pkg> pkgs, final Map<String, byte[]> json, final Predicate<Pkg> filter) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * 1024);
+        try {
+            writeAllPackagesMsg(out, pkgs, json, filter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return out.toString(UTF_8);
+    }
+
+    /**
+     * Writes the utf-8 encoded json fragments of the given packages that pass the given filter as all packages
+     * message to the given output stream, this is the only place where the all packages message is assembled.
+     */
+    private static void writeAllPackagesMsg(final OutputStream out, final Iterable<Pkg> pkgs, final Map<String, byte[]> json, final Predicate<Pkg> filter) throws IOException {
+        boolean first = true;
+        out.write(ALL_PACKAGES_MSG_START);
+        for (Pkg pkg : pkgs) {
+            if (!filter.test(pkg)) { continue; }
+            final byte[] fragment = json.get(pkg.getId());
+            if (null == fragment) { continue; }
+            if (!first) { out.write(COMMA_BYTES); }
+            out.write(fragment);
+            first = false;
         }
-        msgBuilder.setLength(msgBuilder.length() - 1);
-        msgBuilder.append(SQUARE_BRACKET_CLOSE).append(COMMA)
-                  .append(QUOTES).append(MESSAGE).append(QUOTES).append(COLON).append(QUOTES).append(QUOTES)
-                  .append(CURLY_BRACKET_CLOSE);
-        return msgBuilder.toString();
+        out.write(ALL_PACKAGES_MSG_END);
+    }
+
+    private static Predicate<Pkg> getAllPackagesFilter(final Boolean downloadable, final Boolean include_ea, final BuildScope scope) {
+        final List<Distro> publicDistros = null == downloadable || !downloadable ? Distro.getPublicDistros() : Distro.getPublicDistrosDirectlyDownloadable();
+        final boolean      gaOnly        = null == include_ea || !include_ea;
+        final Scope        scopeToCheck  = (BuildScope.BUILD_OF_OPEN_JDK == scope || BuildScope.BUILD_OF_GRAALVM == scope) ? scope : null;
+        return pkg -> null != pkg
+                      && (null == scopeToCheck || Constants.REVERSE_SCOPE_LOOKUP.get(scopeToCheck).contains(pkg.getDistribution().getDistro()))
+                      && publicDistros.contains(pkg.getDistribution().getDistro())
+                      && (gaOnly ? ReleaseStatus.GA == pkg.getReleaseStatus() : null != pkg.getReleaseStatus());
     }
 
     public static final String getUserAgent(final io.micronaut.http.HttpRequest request) {
@@ -780,16 +767,25 @@ public class Helper {
         return scopes;
     }
 
-    public static final String getCountryCode(final String ipAddress) {
+    public static final String getCountryCode(final String ipAddress) { return CountryCodeResolver.INSTANCE.getCountryCode(ipAddress); }
+
+    public static final String getCountryCodeFromRemote(final String ipAddress) {
         if (null == ipAddress || ipAddress.isEmpty()) { return ""; }
-        HttpResponse<String> response = get(Constants.IP_LOCATION_URL + ipAddress);
+        return getCountryCodeFromResponse(get(Constants.IP_LOCATION_URL + ipAddress));
+    }
+
+    public static final CompletableFuture<String> getCountryCodeFromRemoteAsync(final String ipAddress) {
+        if (null == ipAddress || ipAddress.isEmpty()) { return CompletableFuture.completedFuture(""); }
+        return getAsync(Constants.IP_LOCATION_URL + ipAddress).thenApply(Helper::getCountryCodeFromResponse);
+    }
+
+    private static String getCountryCodeFromResponse(final HttpResponse<String> response) {
         if (null == response) {
             return "";
         } else {
             if (response.statusCode() == 200) {
                 String      bodyText = response.body();
-                Gson        gson     = new Gson();
-                JsonElement element  = gson.fromJson(bodyText, JsonElement.class);
+                JsonElement element  = JsonParser.parseString(bodyText);
                 if (element instanceof JsonObject) {
                     JsonObject json = element.getAsJsonObject();
                     if (json.has(Constants.COUNTRY_CODE_FIELD)) {
@@ -817,8 +813,10 @@ public class Helper {
     }
 
     public static final long getFileSize(final String uri) {
+        return UrlMetadataCache.INSTANCE.getFileSize(uri);
+    }
+    public static final long getFileSize(final HttpResponse<?> response, final String uri) {
         long size = -1;
-        HttpResponse<String> response = Helper.httpHeadRequestSync(uri);
         if (null != response) {
             java.net.http.HttpHeaders headers   = response.headers();
             Map<String, List<String>> headerMap = headers.map();
@@ -909,20 +907,12 @@ public class Helper {
 
 
     // ******************** REST calls ****************************************
-    private static HttpClient createHttpClient() {
-        return HttpClient.newBuilder()
-                               .connectTimeout(Duration.ofSeconds(20))
-                               .version(Version.HTTP_2)
-                               .followRedirects(Redirect.NORMAL)
-                               //.executor(Executors.newFixedThreadPool(4))
-                               .build();
-    }
 
     public static final HttpResponse<String> get(final String uri) {
         return get(uri, new HashMap<>());
     }
     public static final HttpResponse<String> get(final String uri, final Map<String,String> headers) {
-        if (null == httpClient) { httpClient = createHttpClient(); }
+        final HttpClient httpClient = HttpClientManager.INSTANCE.getHttpClient();
 
         List<String> requestHeaders = new LinkedList<>();
         requestHeaders.add("User-Agent");
@@ -963,7 +953,7 @@ public class Helper {
         return getAsync(uri, new HashMap<>());
     }
     public static final CompletableFuture<HttpResponse<String>> getAsync(final String uri, final Map<String, String> headers) {
-        if (null == httpClientAsync) { httpClientAsync = createHttpClient(); }
+        final HttpClient httpClientAsync = HttpClientManager.INSTANCE.getHttpClient();
 
         List<String> requestHeaders = new LinkedList<>();
         requestHeaders.add("User-Agent");
@@ -988,7 +978,7 @@ public class Helper {
     }
 
     public static final HttpResponse<String> httpHeadRequestSync(final String uri) {
-        if (null == httpClient) { httpClient = createHttpClient(); }
+        final HttpClient httpClient = HttpClientManager.INSTANCE.getHttpClient();
 
         final HttpRequest request = HttpRequest.newBuilder()
                                                .method("HEAD", HttpRequest.BodyPublishers.noBody())
@@ -1011,7 +1001,7 @@ public class Helper {
         }
     }
     public static final  CompletableFuture<HttpResponse<String>> httpHeadRequestAsync(final String uri) {
-        if (null == httpClientAsync) { httpClientAsync = createHttpClient(); }
+        final HttpClient httpClientAsync = HttpClientManager.INSTANCE.getHttpClient();
 
         final HttpRequest request = HttpRequest.newBuilder()
                                                .method("HEAD", HttpRequest.BodyPublishers.noBody())
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Owns the one HttpClient that is used for all outgoing requests, so connections are kept alive
+ * and reused across requests instead of creating a new client (with its own selector thread and
+ * connection pool) per request. The client runs on a shared executor with
+ * FOOJAY_API_HTTP_CLIENT_THREADS threads (or on virtual threads, see ExecutorProvider) and is shut down
+ * when the application stops.
+ */
+public enum HttpClientManager {
+    INSTANCE;
+
+    private static final Logger          LOGGER = LoggerFactory.getLogger(HttpClientManager.class);
+    private        final ExecutorService executor;
+    private        final HttpClient      httpClient;
+
+
+    HttpClientManager() {
+        executor   = ExecutorProvider.INSTANCE.newExecutor("http-client", Config.INSTANCE.getFoojayApiHttpClientThreads());
+        httpClient = HttpClient.newBuilder()
+                               .connectTimeout(Duration.ofSeconds(20))
+                               .version(Version.HTTP_2)
+                               .followRedirects(Redirect.NORMAL)
+                               .executor(executor)
+                               .build();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "http-client-shutdown"));
+    }
+
+
+    public HttpClient getHttpClient() { return httpClient; }
+
+    public ExecutorService getExecutor() { return executor; }
+
+    /**
+     * Stops the executor of the http client, requests that are still running will be cancelled after 5 seconds
+     */
+    public void shutdown() {
+        if (executor.isShutdown()) { return; }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) { executor.shutdownNow(); }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.debug("Http client shut down");
+    }
+}
@@ -31,15 +31,22 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
+/**
+ * Package cache backed by a ConcurrentHashMap. Reads are lock free, all writers are synchronized on the
+ * cache so that swapping the map in setAll() and clear() cannot lose a concurrent add, remove or patch.
+ */
 public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
     private static final Logger LOGGER = LoggerFactory.getLogger(PkgCache.class);
 
-    private final ConcurrentHashMap<T, U> cache = new ConcurrentHashMap<>(16, 0.9f, 1);
+    private volatile ConcurrentHashMap<T, U> cache         = new ConcurrentHashMap<>(16, 0.9f, 1);
+    private final    AtomicLong              modifications = new AtomicLong();
+    private volatile DownloadIndex<U>        downloadIndex = new DownloadIndex<>(-1, Map.of());
 
 
-    @Override public void add(final T key, final U pkg) {
+    @Override public synchronized void add(final T key, final U pkg) {
         if (null == key) { return; }
         if (null == pkg) {
             LOGGER.debug("Package cannot be null -> removed key {}", key);
@@ -47,23 +54,30 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
         } else {
             cache.put(key, pkg);
         }
+        modifications.incrementAndGet();
     }
 
     @Override public U get(final T key) {
         return cache.get(key);
     }
 
-    @Override public void remove(final T key) {
+    @Override public synchronized void remove(final T key) {
         cache.remove(key);
+        modifications.incrementAndGet();
+    }
+    @Override public synchronized void remove(final List<T> keysToRemove) {
+        keysToRemove.forEach(key -> cache.remove(key));
+        modifications.incrementAndGet();
     }
-    @Override public void remove(final List<T> keysToRemove) { keysToRemove.forEach(key -> cache.remove(key)); }
 
     @Override public synchronized void addAll(final Map<T,U> entries) {
         cache.putAll(entries);
+        modifications.incrementAndGet();
     }
 
     @Override public synchronized void clear() {
-        cache.clear();
+        cache = new ConcurrentHashMap<>(16, 0.9f, 1);
+        modifications.incrementAndGet();
         LOGGER.debug("Package cache cleared");
     }
 
@@ -74,13 +88,16 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
     @Override public synchronized boolean isEmpty() { return cache.isEmpty(); }
 
     /**
-     * Replaces all entries in the cache with the ones in the given patch
+     * Replaces all entries in the cache with the ones in the given patch, the new map is
+     * published at once so readers see either all former or all new entries.
      * @param patch
      */
-    public void setAll(final Map<T,U> patch) {
-        cache.clear();
-        cache.putAll(patch);
-        LOGGER.debug("Package cache cleared and set with new data");
+    public synchronized void setAll(final Map<T,U> patch) {
+        final ConcurrentHashMap<T, U> newCache = new ConcurrentHashMap<>(Math.max(16, (int) (patch.size() / 0.9f) + 1), 0.9f, 1);
+        newCache.putAll(patch);
+        cache = newCache;
+        modifications.incrementAndGet();
+        LOGGER.debug("Package cache set with new data");
     }
 
     /**
@@ -88,7 +105,10 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
      * existing entries.
      * @param patch Map that contains existing and new entries
      */
-    public void synchronize(final Map<T, U> patch) { patch.forEach(cache::putIfAbsent); }
+    public synchronized void synchronize(final Map<T, U> patch) {
+        patch.forEach(cache::putIfAbsent);
+        modifications.incrementAndGet();
+    }
 
     /**
      * Updates the cache with the values from the given patch map including updates
@@ -97,7 +117,7 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
      * @param patch
      * @param removeIfNotInPatch
      */
-    public void update(final Map<T, U> patch, final boolean removeIfNotInPatch) {
+    public synchronized void update(final Map<T, U> patch, final boolean removeIfNotInPatch) {
             patch.forEach((key, value) -> cache.merge(key, value, (v1, v2) -> v1.equals(v2) ? v1 : v2));
             if (removeIfNotInPatch) {
                 if (cache.size() > patch.size()) {
@@ -106,6 +126,7 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
                     toRemoveFromTarget.keySet().forEach(key -> cache.remove(key));
                 }
             }
+            modifications.incrementAndGet();
         }
 
     /**
@@ -114,7 +135,7 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
      * @param patch
      * @param removeIfNotInPatch
      */
-    public void replace(final Map<T, U> patch, final boolean removeIfNotInPatch) {
+    public synchronized void replace(final Map<T, U> patch, final boolean removeIfNotInPatch) {
             patch.forEach((key, value) -> cache.replace(key, value));
             if (removeIfNotInPatch) {
                 if (cache.size() > patch.size()) {
@@ -123,10 +144,38 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
                     toRemoveFromTarget.keySet().forEach(key -> cache.remove(key));
                 }
             }
+            modifications.incrementAndGet();
         }
 
     public boolean containsKey(final T key) { return cache.containsKey(key); }
 
+    /**
+     * Returns true if the cache contains a package with the given filename and direct download uri.
+     * The lookup uses an index that is built once after the cache has been modified, instead of scanning all packages.
+     * @param filename
+     * @param directDownloadUri
+     * @return true if the cache contains a package with the given filename and direct download uri
+     */
+    public boolean containsDownload(final String filename, final String directDownloadUri) { return null != getByDownload(filename, directDownloadUri); }
+
+    /**
+     * Returns the package with the given filename and direct download uri
+     * @param filename
+     * @param directDownloadUri
+     * @return the package with the given filename and direct download uri or null if it is not in the cache
+     */
+    public U getByDownload(final String filename, final String directDownloadUri) {
+        DownloadIndex<U> index = downloadIndex;
+        final long modification = modifications.get();
+        if (index.modification != modification) {
+            final Map<String, U> pkgsByDownload = new HashMap<>(Math.max(16, (int) (cache.size() / 0.75f) + 1));
+            cache.values().forEach(pkg -> pkgsByDownload.put(getDownloadKey(pkg.getFilename(), pkg.getDirectDownloadUri()), pkg));
+            index         = new DownloadIndex<>(modification, pkgsByDownload);
+            downloadIndex = index;
+        }
+        return index.pkgsByDownload.get(getDownloadKey(filename, directDownloadUri));
+    }
+
     public Set<Entry<T,U>> getEntrySet() { return cache.entrySet(); }
 
     public Collection<T> getKeys() { return cache.keySet(); }
@@ -151,5 +200,21 @@ public class PkgCache<T extends String, U extends Pkg> implements Cache<T, U> {
         }
         return deepCopy;
     }
-}
 
+
+    private static String getDownloadKey(final String filename, final String directDownloadUri) { return filename + "\n" + directDownloadUri; }
+
+
+    /**
+     * Packages by filename and direct download uri, built from the cache at the given modification
+     */
+    private static final class DownloadIndex<U> {
+        private final long           modification;
+        private final Map<String, U> pkgsByDownload;
+
+        DownloadIndex(final long modification, final Map<String, U> pkgsByDownload) {
+            this.modification   = modification;
+            this.pkgsByDownload = pkgsByDownload;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.Bitness;
+import eu.hansolo.jdktools.FPU;
+import eu.hansolo.jdktools.LibCType;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.Feature;
+import io.foojay.api.pkg.Pkg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Immutable bitmap index over a fixed array of packages.
+ * Every indexed dimension maps each value to a BitSet of the positions of the packages
+ * that have this value, which makes a query an intersection of a few bitsets instead of
+ * a scan over all packages.
+ * The positions follow the iteration order of the packages the index was created with, so if
+ * they were sorted (e.g. in Pkg.DEFAULT_ORDER) every selection keeps this order.
+ * All methods return new BitSet instances that can be modified by the caller.
+ */
+public class PkgIndex {
+    public  static final PkgIndex                           EMPTY = new PkgIndex(List.of());
+    private        final Pkg[]                              pkgs;
+    private        final Map<Distro, BitSet>                distros;
+    private        final Map<Architecture, BitSet>          architectures;
+    private        final Map<OperatingSystem, BitSet>       operatingSystems;
+    private        final Map<LibCType, BitSet>              libCTypes;
+    private        final Map<ArchiveType, BitSet>           archiveTypes;
+    private        final Map<PackageType, BitSet>           packageTypes;
+    private        final Map<ReleaseStatus, BitSet>         releaseStatus;
+    private        final Map<TermOfSupport, BitSet>         termsOfSupport;
+    private        final Map<Bitness, BitSet>               bitnesses;
+    private        final Map<FPU, BitSet>                   fpus;
+    private        final Map<Boolean, BitSet>               javafxBundled;
+    private        final Map<Boolean, BitSet>               directlyDownloadable;
+    private        final Map<Feature, BitSet>               features;
+    private        final BitSet                             withoutFeatures;
+    private        final Map<Integer, BitSet>               majorVersions;
+
+
+    public PkgIndex(final Collection<Pkg> pkgs) {
+        this.pkgs                 = pkgs.toArray(new Pkg[0]);
+        this.distros              = new EnumMap<>(Distro.class);
+        this.architectures        = new EnumMap<>(Architecture.class);
+        this.operatingSystems     = new EnumMap<>(OperatingSystem.class);
+        this.libCTypes            = new EnumMap<>(LibCType.class);
+        this.archiveTypes         = new EnumMap<>(ArchiveType.class);
+        this.packageTypes         = new EnumMap<>(PackageType.class);
+        this.releaseStatus        = new EnumMap<>(ReleaseStatus.class);
+        this.termsOfSupport       = new EnumMap<>(TermOfSupport.class);
+        this.bitnesses            = new EnumMap<>(Bitness.class);
+        this.fpus                 = new EnumMap<>(FPU.class);
+        this.javafxBundled        = new HashMap<>(2);
+        this.directlyDownloadable = new HashMap<>(2);
+        this.features             = new EnumMap<>(Feature.class);
+        this.withoutFeatures      = new BitSet(this.pkgs.length);
+        this.majorVersions        = new HashMap<>();
+
+        for (int i = 0 ; i < this.pkgs.length ; i++) {
+            final Pkg pkg = this.pkgs[i];
+            set(distros, null == pkg.getDistribution() ? null : pkg.getDistribution().getDistro(), i);
+            set(architectures, pkg.getArchitecture(), i);
+            set(operatingSystems, pkg.getOperatingSystem(), i);
+            set(libCTypes, pkg.getLibCType(), i);
+            set(archiveTypes, pkg.getArchiveType(), i);
+            set(packageTypes, pkg.getPackageType(), i);
+            set(releaseStatus, pkg.getReleaseStatus(), i);
+            set(termsOfSupport, pkg.getTermOfSupport(), i);
+            set(bitnesses, pkg.getBitness(), i);
+            set(fpus, pkg.getFPU(), i);
+            set(javafxBundled, pkg.isJavaFXBundled(), i);
+            set(directlyDownloadable, pkg.isDirectlyDownloadable(), i);
+            set(majorVersions, null == pkg.getJdkVersion() ? null : pkg.getJdkVersion().getAsInt(), i);
+            if (pkg.getFeatures().isEmpty()) {
+                withoutFeatures.set(i);
+            } else {
+                for (Feature feature : pkg.getFeatures()) { set(features, feature, i); }
+            }
+        }
+    }
+
+
+    public int size() { return pkgs.length; }
+
+    public boolean isEmpty() { return 0 == pkgs.length; }
+
+    public Pkg get(final int index) { return pkgs[index]; }
+
+    /**
+     * Returns an unmodifiable view of all indexed packages in index order
+     * @return an unmodifiable view of all indexed packages in index order
+     */
+    public List<Pkg> getPkgs() { return Collections.unmodifiableList(Arrays.asList(pkgs)); }
+
+    /**
+     * Returns a BitSet with all positions set
+     * @return a BitSet with all positions set
+     */
+    public BitSet all() {
+        final BitSet bits = new BitSet(pkgs.length);
+        bits.set(0, pkgs.length);
+        return bits;
+    }
+
+    /**
+     * Returns the packages of the given distros, an empty collection selects all packages with a distro
+     * @param distros
+     * @return the packages of the given distros
+     */
+    public BitSet withDistros(final Collection<Distro> distros) { return anyOf(this.distros, distros); }
+
+    public BitSet withArchitectures(final Collection<Architecture> architectures) { return anyOf(this.architectures, architectures); }
+
+    public BitSet withOperatingSystems(final Collection<OperatingSystem> operatingSystems) { return anyOf(this.operatingSystems, operatingSystems); }
+
+    public BitSet withLibCTypes(final Collection<LibCType> libCTypes) { return anyOf(this.libCTypes, libCTypes); }
+
+    public BitSet withArchiveTypes(final Collection<ArchiveType> archiveTypes) { return anyOf(this.archiveTypes, archiveTypes); }
+
+    public BitSet withReleaseStatus(final Collection<ReleaseStatus> releaseStatus) { return anyOf(this.releaseStatus, releaseStatus); }
+
+    public BitSet withTermsOfSupport(final Collection<TermOfSupport> termsOfSupport) { return anyOf(this.termsOfSupport, termsOfSupport); }
+
+    public BitSet withFPUs(final Collection<FPU> fpus) { return anyOf(this.fpus, fpus); }
+
+    /**
+     * Returns the packages of the given package type, PackageType.NONE selects all packages that are not of type NONE
+     * @param packageType
+     * @return the packages of the given package type
+     */
+    public BitSet withPackageType(final PackageType packageType) {
+        if (PackageType.NONE == packageType) {
+            final BitSet bits = anyOf(packageTypes, List.of());
+            bits.andNot(packageTypes.getOrDefault(PackageType.NONE, new BitSet()));
+            return bits;
+        }
+        return null == packageType ? new BitSet() : anyOf(packageTypes, List.of(packageType));
+    }
+
+    /**
+     * Returns the packages with the given bitness, Bitness.NONE selects all packages that do not have bitness NONE
+     * @param bitness
+     * @return the packages with the given bitness
+     */
+    public BitSet withBitness(final Bitness bitness) {
+        if (Bitness.NONE == bitness) {
+            final BitSet bits = anyOf(bitnesses, List.of());
+            bits.andNot(bitnesses.getOrDefault(Bitness.NONE, new BitSet()));
+            return bits;
+        }
+        return null == bitness ? new BitSet() : anyOf(bitnesses, List.of(bitness));
+    }
+
+    public BitSet withJavaFXBundled(final Boolean javafxBundled) { return anyOf(this.javafxBundled, null == javafxBundled ? List.of() : List.of(javafxBundled)); }
+
+    public BitSet withDirectlyDownloadable(final Boolean directlyDownloadable) { return anyOf(this.directlyDownloadable, null == directlyDownloadable ? List.of() : List.of(directlyDownloadable)); }
+
+    /**
+     * Returns the packages that contain at least one of the given features, an empty collection selects all packages without features
+     * @param features
+     * @return the packages that contain at least one of the given features
+     */
+    public BitSet withFeatures(final Collection<Feature> features) {
+        if (features.isEmpty()) { return (BitSet) withoutFeatures.clone(); }
+        return anyOf(this.features, features);
+    }
+
+    /**
+     * Returns the packages with the given major version, null selects all packages with a major version
+     * @param majorVersion
+     * @return the packages with the given major version
+     */
+    public BitSet withMajorVersion(final Integer majorVersion) { return anyOf(majorVersions, null == majorVersion ? List.of() : List.of(majorVersion)); }
+
+    /**
+     * Returns the packages at the set positions of the given BitSet in index order
+     * @param bits
+     * @return the packages at the set positions of the given BitSet in index order
+     */
+    public List<Pkg> getPkgs(final BitSet bits) {
+        final List<Pkg> selection = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0) ; i >= 0 ; i = bits.nextSetBit(i + 1)) { selection.add(pkgs[i]); }
+        return selection;
+    }
+
+
+    private static <K> void set(final Map<K, BitSet> index, final K key, final int position) {
+        if (null == key) { return; }
+        index.computeIfAbsent(key, k -> new BitSet()).set(position);
+    }
+
+    /**
+     * Returns the union of the bitsets of the given keys, an empty collection returns the union of all bitsets
+     * which selects all packages that have a value in this dimension.
+     */
+    private BitSet anyOf(final Map<?, BitSet> index, final Collection<?> keys) {
+        final BitSet bits = new BitSet(pkgs.length);
+        if (keys.isEmpty()) {
+            index.values().forEach(bits::or);
+        } else {
+            for (Object key : keys) {
+                final BitSet keyBits = index.get(key);
+                if (null != keyBits) { bits.or(keyBits); }
+            }
+        }
+        return bits;
+    }
+}
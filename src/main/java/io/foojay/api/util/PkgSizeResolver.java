@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.foojay.api.CacheManager;
+import io.foojay.api.pkg.Pkg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+
+/**
+ * Resolves the file sizes of packages with asynchronous HEAD requests instead of one blocking request per package.
+ * Distributions hand over their packages with resolve() while they are building them and the size of each package
+ * is set as soon as its request completes. The number of concurrent requests per host is limited to
+ * FOOJAY_API_SIZE_REQUESTS_PER_HOST, so the throughput is bound by this limit and not by the round trip times.
+ * Sizes of packages that are already in the package cache or that are known from the UrlMetadataCache
+ * are set immediately without a request.
+ * Each request times out after 30 seconds and then counts as failed (size -1, like Helper.getFileSize()), so every
+ * package gets its size eventually. Packages must not be stored before their sizes are resolved, await() blocks
+ * until all given packages are done, no matter how long the queue of a host is.
+ */
+public enum PkgSizeResolver {
+    INSTANCE;
+
+    private static final Logger                            LOGGER   = LoggerFactory.getLogger(PkgSizeResolver.class);
+    private static final Duration                          TIMEOUT  = Duration.ofSeconds(30);
+    private        final Map<Pkg, CompletableFuture<Void>> pending  = Collections.synchronizedMap(new IdentityHashMap<>());
+    private        final Map<String, HostLimiter>          limiters = new ConcurrentHashMap<>();
+    private        final int                               requestsPerHost;
+
+
+    PkgSizeResolver() {
+        requestsPerHost = Config.INSTANCE.getFoojayApiSizeRequestsPerHost();
+    }
+
+
+    /**
+     * Requests the file size of the given uri asynchronously and sets it as size of the given package when done
+     * @param pkg
+     * @param uri
+     */
+    public void resolve(final Pkg pkg, final String uri) {
+        final String host;
+        try {
+            host = URI.create(uri).getHost();
+        } catch (IllegalArgumentException | NullPointerException e) {
+            pkg.setSize(-1);
+            return;
+        }
+        // Packages that are already known keep their size, no request needed
+        final Pkg knownPkg = CacheManager.INSTANCE.pkgCache.getByDownload(pkg.getFilename(), uri);
+        if (null != knownPkg && knownPkg.getSize() > 0) {
+            pkg.setSize(knownPkg.getSize());
+            return;
+        }
+        final UrlMetadata cached = UrlMetadataCache.INSTANCE.get(uri);
+        if (UrlMetadataCache.INSTANCE.isFresh(cached)) {
+            pkg.setSize(cached.getSize());
+            return;
+        }
+        final CompletableFuture<Void> future = limiters.computeIfAbsent(null == host ? "" : host, h -> new HostLimiter(requestsPerHost))
+                                                       .submit(() -> UrlMetadataCache.INSTANCE.getFileSizeAsync(uri, TIMEOUT).orTimeout(TIMEOUT.toSeconds(), TimeUnit.SECONDS))
+                                                       .handle((size, throwable) -> {
+                                                           if (null != throwable) { LOGGER.debug("Error getting file size of {}. {}", uri, throwable.getMessage()); }
+                                                           pkg.setSize(null == throwable ? size : -1);
+                                                           return null;
+                                                       });
+        pending.put(pkg, future);
+        future.whenComplete((v, t) -> pending.remove(pkg, future));
+    }
+
+    /**
+     * Blocks until the sizes of all given packages have been resolved or their requests failed, packages
+     * that were not handed over to resolve() or that are already done are skipped
+     * @param pkgs
+     */
+    public void await(final Collection<Pkg> pkgs) {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        synchronized (pending) {
+            for (Pkg pkg : pkgs) {
+                final CompletableFuture<Void> future = pending.get(pkg);
+                if (null != future) { futures.add(future); }
+            }
+        }
+        if (futures.isEmpty()) { return; }
+        // The futures never complete exceptionally and every request has its own timeout, so this always terminates
+        final long start = System.currentTimeMillis();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        LOGGER.debug("Resolved file sizes of {} packages in {} ms", futures.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Blocks until the sizes of all packages that have been handed over have been resolved
+     */
+    public void awaitAll() {
+        final List<Pkg> pkgs;
+        synchronized (pending) { pkgs = new ArrayList<>(pending.keySet()); }
+        await(pkgs);
+    }
+
+    public int getNumberOfPending() { return pending.size(); }
+
+
+    /**
+     * Starts at most the given number of requests at the same time, further requests wait in a queue
+     * without blocking the caller and are started as soon as a running request completes
+     */
+    private static final class HostLimiter {
+        private final int             maxConcurrentRequests;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private       int             running;
+
+
+        HostLimiter(final int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+
+        <T> CompletableFuture<T> submit(final Supplier<CompletableFuture<T>> request) {
+            final CompletableFuture<T> result = new CompletableFuture<>();
+            final Runnable task = () -> {
+                CompletableFuture<T> future;
+                try {
+                    future = request.get();
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((value, throwable) -> {
+                    release();
+                    if (null == throwable) { result.complete(value); } else { result.completeExceptionally(throwable); }
+                });
+            };
+            final boolean start;
+            synchronized (this) {
+                start = running < maxConcurrentRequests;
+                if (start) { running++; } else { waiting.add(task); }
+            }
+            if (start) { task.run(); }
+            return result;
+        }
+
+        private void release() {
+            final Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (null == next) { running--; }
+            }
+            if (null != next) { HttpClientManager.INSTANCE.getExecutor().execute(next); }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Bounded cache for query results with approximate LRU eviction. Readers never block each other, every
+ * access only stamps the entry with a tick of a shared clock. If the cache grows beyond its maximum size
+ * the least recently used of a small sample of entries gets evicted.
+ * Every entry is tagged with the cache generation it was computed in, entries of older generations are
+ * never returned and get dropped as soon as they are looked up.
+ * Hits, misses and evictions are counted in the global Micrometer registry.
+ */
+public class QueryCache<K, V> {
+    private static final int           SAMPLE_SIZE = 8;
+    private final int                  maxSize;
+    private final Map<K, Entry<V>>     cache;
+    private final AtomicLong           clock;
+    private final Counter              hits;
+    private final Counter              misses;
+    private final Counter              evictions;
+
+
+    public QueryCache(final String name, final int maxSize) {
+        this.maxSize   = maxSize;
+        this.cache     = new ConcurrentHashMap<>();
+        this.clock     = new AtomicLong();
+        this.hits      = Metrics.counter(name, "result", "hit");
+        this.misses    = Metrics.counter(name, "result", "miss");
+        this.evictions = Metrics.counter(name, "result", "eviction");
+    }
+
+
+    /**
+     * Returns the value for the given key if it was computed in the given generation, otherwise null
+     * @param key
+     * @param generation
+     * @return the value for the given key if it was computed in the given generation, otherwise null
+     */
+    public V get(final K key, final long generation) {
+        final Entry<V> entry = cache.get(key);
+        if (null == entry) {
+            misses.increment();
+            return null;
+        }
+        if (entry.generation != generation) {
+            cache.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(final K key, final V value, final long generation) {
+        if (maxSize <= 0) { return; }
+        cache.put(key, new Entry<>(value, generation, clock.incrementAndGet()));
+        while (cache.size() > maxSize) {
+            if (!evict(generation)) { break; }
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+
+    /**
+     * Removes an entry of an older generation or the least recently used entry of a sample of entries
+     * @param generation
+     * @return true if an entry was removed
+     */
+    private boolean evict(final long generation) {
+        final Iterator<Map.Entry<K, Entry<V>>> iterator  = cache.entrySet().iterator();
+        K                                      victimKey = null;
+        Entry<V>                               victim    = null;
+        int                                    sampled   = 0;
+        while (iterator.hasNext() && sampled < SAMPLE_SIZE) {
+            final Map.Entry<K, Entry<V>> candidate = iterator.next();
+            final Entry<V>               entry     = candidate.getValue();
+            if (entry.generation != generation) {
+                victimKey = candidate.getKey();
+                victim    = entry;
+                break;
+            }
+            if (null == victim || entry.lastAccess < victim.lastAccess) {
+                victimKey = candidate.getKey();
+                victim    = entry;
+            }
+            sampled++;
+        }
+        if (null == victim) { return false; }
+        if (cache.remove(victimKey, victim)) { evictions.increment(); }
+        return true;
+    }
+
+
+    private static final class Entry<V> {
+        private final    V    value;
+        private final    long generation;
+        private volatile long lastAccess;
+
+        Entry(final V value, final long generation, final long lastAccess) {
+            this.value      = value;
+            this.generation = generation;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Immutable response body that is kept uncompressed and gzip compressed together with a strong
+ * ETag per encoding, so it can be served without serializing or compressing it again and
+ * conditional requests can be answered with 304 Not Modified.
+ * Only gzip and identity are supported, clients that only accept deflate get the uncompressed
+ * content, all common clients accept gzip.
+ */
+public class ResponseBlob {
+    public  static final String ENCODING_GZIP     = "gzip";
+    public  static final String ENCODING_IDENTITY = "identity";
+    private        final byte[] bytes;
+    private        final byte[] gzipped;
+    private        final String eTag;
+    private        final String gzipETag;
+
+
+    private ResponseBlob(final byte[] bytes, final byte[] gzipped, final String eTag) {
+        this.bytes    = bytes;
+        this.gzipped  = gzipped;
+        this.eTag     = eTag;
+        this.gzipETag = eTag.substring(0, eTag.length() - 1) + "-" + ENCODING_GZIP + "\"";
+    }
+
+
+    public static ResponseBlob of(final byte[] bytes) {
+        return new ResponseBlob(bytes, compress(bytes), createETag(bytes));
+    }
+
+
+    /**
+     * Returns a read only view of the content in the given encoding, one of gzip or identity
+     * @param encoding
+     * @return a read only view of the content in the given encoding
+     */
+    public ByteBuffer getBuffer(final String encoding) {
+        return ByteBuffer.wrap(ENCODING_GZIP.equals(encoding) ? gzipped : bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the content in the given encoding to the given output stream without copying it
+     * @param outputStream
+     * @param encoding
+     * @throws IOException
+     */
+    public void writeTo(final OutputStream outputStream, final String encoding) throws IOException {
+        outputStream.write(ENCODING_GZIP.equals(encoding) ? gzipped : bytes);
+    }
+
+    public int getLength(final String encoding) { return ENCODING_GZIP.equals(encoding) ? gzipped.length : bytes.length; }
+
+    /**
+     * Returns the strong ETag (including the quotes) of the uncompressed content
+     * @return the strong ETag (including the quotes) of the uncompressed content
+     */
+    public String getETag() { return eTag; }
+
+    /**
+     * Returns the strong ETag (including the quotes) of the content in the given encoding, the gzip
+     * body gets its own ETag because a strong validator has to differ between content codings
+     * @param encoding
+     * @return the strong ETag (including the quotes) of the content in the given encoding
+     */
+    public String getETag(final String encoding) { return ENCODING_GZIP.equals(encoding) ? gzipETag : eTag; }
+
+    /**
+     * Returns the best encoding that is accepted by the given Accept-Encoding header value
+     * @param acceptEncoding
+     * @return gzip or identity
+     */
+    public static String getEncoding(final String acceptEncoding) {
+        if (null == acceptEncoding || acceptEncoding.isEmpty()) { return ENCODING_IDENTITY; }
+        for (String part : acceptEncoding.split(",")) {
+            final String[] codingAndParams = part.trim().split(";");
+            final String   coding          = codingAndParams[0].trim().toLowerCase();
+            if (codingAndParams.length > 1 && codingAndParams[1].trim().replace(" ", "").matches("q=0(\\.0*)?")) { continue; }
+            if (ENCODING_GZIP.equals(coding) || "*".equals(coding)) { return ENCODING_GZIP; }
+        }
+        return ENCODING_IDENTITY;
+    }
+
+    /**
+     * Returns true if the given If-None-Match header value matches the ETag of the content in the
+     * negotiated encoding, in which case the request should be answered with 304 Not Modified
+     * @param ifNoneMatch
+     * @param encoding The encoding returned by getEncoding()
+     * @return true if the given If-None-Match header value matches the ETag of the content in the given encoding
+     */
+    public boolean isNotModified(final String ifNoneMatch, final String encoding) { return matches(ifNoneMatch, getETag(encoding)); }
+
+    /**
+     * Returns true if the given If-None-Match header value contains the given ETag or is *.
+     * Weak validators are compared weakly as defined for If-None-Match.
+     * @param ifNoneMatch
+     * @param eTag
+     * @return true if the given If-None-Match header value contains the given ETag or is *
+     */
+    public static boolean matches(final String ifNoneMatch, final String eTag) {
+        if (null == ifNoneMatch || ifNoneMatch.isEmpty() || null == eTag) { return false; }
+        if ("*".equals(ifNoneMatch.trim())) { return true; }
+        final String opaqueTag = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) { tag = tag.substring(2); }
+            if (tag.equals(opaqueTag)) { return true; }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a strong ETag (including the quotes) of the given content
+     * @param bytes
+     * @return a strong ETag (including the quotes) of the given content
+     */
+    public static String createETag(final byte[] bytes) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    private static byte[] compress(final byte[] bytes) {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(Math.max(32, bytes.length / 8));
+        try (OutputStream out = new GZIPOutputStream(byteArrayOutputStream, 64 * 1024)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+}
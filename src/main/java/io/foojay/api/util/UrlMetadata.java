@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+/**
+ * Result of the last HEAD request to a download url, which is the size, the status code and the
+ * validators (ETag and Last-Modified) that can be used to revalidate the url with a conditional request.
+ * The validated at timestamp is the epoch second of the last request that confirmed the values.
+ */
+public class UrlMetadata {
+    private final String url;
+    private final long   size;
+    private final int    status;
+    private final String eTag;
+    private final String lastModified;
+    private final long   validatedAt;
+
+
+    public UrlMetadata(final String url, final long size, final int status, final String eTag, final String lastModified, final long validatedAt) {
+        this.url          = url;
+        this.size         = size;
+        this.status       = status;
+        this.eTag         = eTag;
+        this.lastModified = lastModified;
+        this.validatedAt  = validatedAt;
+    }
+
+
+    public String getUrl() { return url; }
+
+    public long getSize() { return size; }
+
+    public int getStatus() { return status; }
+
+    public boolean isValid() { return 200 == status; }
+
+    public String getETag() { return eTag; }
+
+    public String getLastModified() { return lastModified; }
+
+    /**
+     * Returns true if the url can be revalidated with a conditional request because an ETag or Last-Modified header was sent
+     * @return true if the url can be revalidated with a conditional request
+     */
+    public boolean hasValidators() { return (null != eTag && !eTag.isEmpty()) || (null != lastModified && !lastModified.isEmpty()); }
+
+    public long getValidatedAt() { return validatedAt; }
+
+    /**
+     * Returns a copy of this metadata that was validated at the given time, used when the server answered 304 Not Modified
+     * @param validatedAt
+     * @return a copy of this metadata that was validated at the given time
+     */
+    public UrlMetadata revalidated(final long validatedAt) { return new UrlMetadata(url, size, status, eTag, lastModified, validatedAt); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("{")
+                                  .append("\"url\":\"").append(url).append("\",")
+                                  .append("\"size\":").append(size).append(",")
+                                  .append("\"status\":").append(status).append(",")
+                                  .append("\"etag\":\"").append(null == eTag ? "" : eTag.replace("\"", "\\\"")).append("\",")
+                                  .append("\"last_modified\":\"").append(null == lastModified ? "" : lastModified).append("\",")
+                                  .append("\"validated_at\":").append(validatedAt)
+                                  .append("}")
+                                  .toString();
+    }
+}
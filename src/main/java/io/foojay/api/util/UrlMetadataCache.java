@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.foojay.api.MongoDbManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Persistent cache for the size and validity of download urls.
+ * Released archives never change, so the result of a HEAD request is kept in the urlMetadata collection
+ * and reused until it is older than FOOJAY_API_URL_METADATA_MAX_AGE minutes. Urls that did not answer
+ * with 200 are requested again after at most 10 minutes.
+ * Stale entries are revalidated with a conditional request (If-None-Match / If-Modified-Since), a 304
+ * response only updates the validated at timestamp. Changed entries are written to the database in batches.
+ */
+public enum UrlMetadataCache {
+    INSTANCE;
+
+    private static final Logger                     LOGGER          = LoggerFactory.getLogger(UrlMetadataCache.class);
+    private static final long                       FAILURE_MAX_AGE = 600;
+    private static final Duration                   VALID_TIMEOUT   = Duration.ofSeconds(3);
+    private        final Map<String, UrlMetadata>   entries         = new ConcurrentHashMap<>();
+    private        final long                       maxAge;
+    private        final BatchingQueue<UrlMetadata> updates;
+    private        final Counter                    hits;
+    private        final Counter                    revalidations;
+    private        final Counter                    misses;
+    private volatile     boolean                    loaded;
+
+
+    UrlMetadataCache() {
+        maxAge        = Config.INSTANCE.getFoojayApiUrlMetadataMaxAge() * 60L;
+        updates       = new BatchingQueue<>("discoapi.url.metadata.updates", 10_000, 500, 5_000, this::persist);
+        hits          = Metrics.counter("discoapi.url.metadata.cache", "result", "hit");
+        revalidations = Metrics.counter("discoapi.url.metadata.cache", "result", "not_modified");
+        misses        = Metrics.counter("discoapi.url.metadata.cache", "result", "miss");
+        loaded        = false;
+        // Write the remaining entries on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> updates.close(5000), "url-metadata-shutdown"));
+    }
+
+
+    /**
+     * Returns the size of the file at the given url from the cache or from a (conditional) HEAD request if the cached entry is stale
+     * @param url
+     * @return the size of the file at the given url or -1 if it could not be determined
+     */
+    public long getFileSize(final String url) {
+        final UrlMetadata metadata = validate(url, null);
+        return null == metadata ? -1 : metadata.getSize();
+    }
+
+    /**
+     * Asynchronous version of getFileSize(), completes immediately if the cached entry is fresh
+     * @param url
+     * @param timeout Timeout of the request
+     * @return a future with the size of the file at the given url or -1 if it could not be determined
+     */
+    public CompletableFuture<Long> getFileSizeAsync(final String url, final Duration timeout) {
+        final UrlMetadata cached = get(url);
+        if (isFresh(cached)) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached.getSize());
+        }
+        final HttpRequest request;
+        try {
+            request = createHeadRequest(url, cached, timeout);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        return HttpClientManager.INSTANCE.getHttpClient()
+                                         .sendAsync(request, BodyHandlers.discarding())
+                                         .thenApply(response -> update(url, response, cached).getSize());
+    }
+
+    /**
+     * Returns true if a HEAD request to the given url answers with status 200, the result is taken from the cache if it is fresh
+     * @param url
+     * @return true if a HEAD request to the given url answers with status 200
+     */
+    public boolean isUriValid(final String url) {
+        final UrlMetadata metadata = validate(url, VALID_TIMEOUT);
+        return null != metadata && metadata.isValid();
+    }
+
+    /**
+     * Returns the cached metadata of the given url without checking whether it is fresh
+     * @param url
+     * @return the cached metadata of the given url or null
+     */
+    public UrlMetadata get(final String url) {
+        if (null == url) { return null; }
+        if (!loaded) { load(); }
+        return entries.get(url);
+    }
+
+    public boolean isFresh(final UrlMetadata metadata) {
+        if (null == metadata) { return false; }
+        final long age = Instant.now().getEpochSecond() - metadata.getValidatedAt();
+        return age < (metadata.isValid() ? maxAge : Math.min(maxAge, FAILURE_MAX_AGE));
+    }
+
+    public int size() { return entries.size(); }
+
+
+    private UrlMetadata validate(final String url, final Duration timeout) {
+        final UrlMetadata cached = get(url);
+        if (isFresh(cached)) {
+            hits.increment();
+            return cached;
+        }
+        try {
+            final HttpResponse<Void> response = HttpClientManager.INSTANCE.getHttpClient().send(createHeadRequest(url, cached, timeout), BodyHandlers.discarding());
+            return update(url, response, cached);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException | IllegalArgumentException | NullPointerException e) {
+            LOGGER.debug("Uri request: {} failed with exception: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    private HttpRequest createHeadRequest(final String url, final UrlMetadata cached, final Duration timeout) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder()
+                                                       .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                                                       .uri(URI.create(url));
+        if (null != timeout) { builder.timeout(timeout); }
+        if (null != cached && cached.isValid() && cached.hasValidators()) {
+            if (null != cached.getETag() && !cached.getETag().isEmpty())                 { builder.header("If-None-Match", cached.getETag()); }
+            if (null != cached.getLastModified() && !cached.getLastModified().isEmpty()) { builder.header("If-Modified-Since", cached.getLastModified()); }
+        }
+        return builder.build();
+    }
+
+    private UrlMetadata update(final String url, final HttpResponse<?> response, final UrlMetadata cached) {
+        final long        now = Instant.now().getEpochSecond();
+        final UrlMetadata metadata;
+        if (304 == response.statusCode() && null != cached) {
+            revalidations.increment();
+            metadata = cached.revalidated(now);
+        } else {
+            misses.increment();
+            metadata = new UrlMetadata(url, Helper.getFileSize(response, url), response.statusCode(), response.headers().firstValue("ETag").orElse(null),
+                                       response.headers().firstValue("Last-Modified").orElse(null), now);
+        }
+        entries.put(url, metadata);
+        updates.offer(metadata);
+        return metadata;
+    }
+
+    private synchronized void load() {
+        if (loaded) { return; }
+        MongoDbManager.INSTANCE.getUrlMetadata().forEach(entries::putIfAbsent);
+        loaded = true;
+        LOGGER.debug("Loaded metadata of {} urls", entries.size());
+    }
+
+    private void persist(final List<UrlMetadata> metadata) {
+        MongoDbManager.INSTANCE.upsertUrlMetadata(metadata);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api;
+
+import eu.hansolo.jdktools.Architecture;
+import eu.hansolo.jdktools.ArchiveType;
+import eu.hansolo.jdktools.Bitness;
+import eu.hansolo.jdktools.FPU;
+import eu.hansolo.jdktools.HashAlgorithm;
+import eu.hansolo.jdktools.OperatingSystem;
+import eu.hansolo.jdktools.PackageType;
+import eu.hansolo.jdktools.ReleaseStatus;
+import eu.hansolo.jdktools.TermOfSupport;
+import eu.hansolo.jdktools.Verification;
+import eu.hansolo.jdktools.versioning.VersionNumber;
+import io.foojay.api.distribution.Distribution;
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.MajorVersion;
+import io.foojay.api.pkg.Pkg;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.stream.Collectors;
+
+
+public class DiscoServiceTest {
+    private static final List<Distribution>    DISTRIBUTIONS     = List.of(Distro.ZULU.get(), Distro.TEMURIN.get());
+    private static final List<Architecture>    ARCHITECTURES     = List.of(Architecture.X64, Architecture.AARCH64);
+    private static final List<OperatingSystem> OPERATING_SYSTEMS = List.of(OperatingSystem.LINUX, OperatingSystem.WINDOWS);
+    private static final List<ArchiveType>     ARCHIVE_TYPES     = List.of(ArchiveType.TAR_GZ, ArchiveType.ZIP);
+    private static final List<Integer>         FEATURE_VERSIONS  = List.of(11, 17, 21);
+
+
+    @Test
+    public void latestAvailablePkgsEqualPairwiseComparison() {
+        for (int seed = 0 ; seed < 50 ; seed++) {
+            final List<Pkg> pkgs     = createPkgs(new Random(seed), 20 + seed * 10);
+            final List<Pkg> expected = getLatestAvailablePkgsPairwise(pkgs);
+            final List<Pkg> result   = DiscoService.INSTANCE.getLatestAvailablePkgs(pkgs);
+
+            assert result.size() == expected.size();
+            assert new HashSet<>(result).equals(new HashSet<>(expected));
+
+            // Result keeps the order of the given packages
+            final List<Pkg> inOrder = pkgs.stream().filter(new HashSet<>(result)::contains).collect(Collectors.toList());
+            assert inOrder.equals(result);
+        }
+    }
+
+    @Test
+    public void latestAvailablePkgsKeepsPkgsWithoutUpdates() {
+        final List<Pkg> pkgs = new ArrayList<>();
+        pkgs.add(createPkg(0, Distro.ZULU.get(), new VersionNumber(17, 0, 2, 0), Architecture.X64, OperatingSystem.LINUX, ArchiveType.TAR_GZ, false));
+        pkgs.add(createPkg(1, Distro.ZULU.get(), new VersionNumber(17, 0, 1, 0), Architecture.X64, OperatingSystem.LINUX, ArchiveType.TAR_GZ, false));
+        pkgs.add(createPkg(2, Distro.ZULU.get(), new VersionNumber(17, 0, 1, 0), Architecture.AARCH64, OperatingSystem.LINUX, ArchiveType.TAR_GZ, false));
+        pkgs.sort(Pkg.DEFAULT_ORDER);
+
+        final List<Pkg> result = DiscoService.INSTANCE.getLatestAvailablePkgs(pkgs);
+        assert result.size() == 2;
+        assert result.contains(pkgs.stream().filter(pkg -> pkg.getArchitecture() == Architecture.AARCH64).findFirst().get());
+        assert result.stream().filter(pkg -> pkg.getArchitecture() == Architecture.X64).allMatch(pkg -> pkg.getVersionNumber().getUpdate().getAsInt() == 2);
+    }
+
+
+    private static List<Pkg> createPkgs(final Random random, final int numberOfPkgs) {
+        final List<Pkg> pkgs = new ArrayList<>(numberOfPkgs);
+        for (int i = 0 ; i < numberOfPkgs ; i++) {
+            final VersionNumber versionNumber = new VersionNumber(FEATURE_VERSIONS.get(random.nextInt(FEATURE_VERSIONS.size())), 0, random.nextInt(4), random.nextInt(2));
+            pkgs.add(createPkg(i, DISTRIBUTIONS.get(random.nextInt(DISTRIBUTIONS.size())), versionNumber,
+                               ARCHITECTURES.get(random.nextInt(ARCHITECTURES.size())),
+                               OPERATING_SYSTEMS.get(random.nextInt(OPERATING_SYSTEMS.size())),
+                               ARCHIVE_TYPES.get(random.nextInt(ARCHIVE_TYPES.size())),
+                               random.nextBoolean()));
+        }
+        pkgs.sort(Pkg.DEFAULT_ORDER);
+        return pkgs;
+    }
+
+    private static Pkg createPkg(final int index, final Distribution distribution, final VersionNumber versionNumber, final Architecture architecture, final OperatingSystem operatingSystem, final ArchiveType archiveType, final boolean javafxBundled) {
+        final String filename = "jdk-" + versionNumber.toString() + "-" + index + "." + archiveType.getApiString();
+        return new Pkg(distribution, versionNumber, new MajorVersion(versionNumber.getFeature().getAsInt(), TermOfSupport.LTS), architecture, Bitness.BIT_64, FPU.UNKNOWN, operatingSystem, PackageType.JDK,
+                       ReleaseStatus.GA, archiveType, TermOfSupport.LTS, javafxBundled, true, filename, "https://example.com/" + filename, "", "", "", "", HashAlgorithm.NONE, Boolean.TRUE,
+                       Verification.UNKNOWN, "", Verification.UNKNOWN, "", 0, true, -1, List.of());
+    }
+
+    /**
+     * The former implementation of the Latest.AVAILABLE branch in DiscoService.getPkgsFromCache()
+     */
+    private static List<Pkg> getLatestAvailablePkgsPairwise(final List<Pkg> pkgsFound) {
+        final Set<Pkg>  filteredPkgsFound = new CopyOnWriteArraySet<>();
+        final List<Pkg> pkgsToCheck       = new CopyOnWriteArrayList<>(pkgsFound);
+        final Set<Pkg>  diffPkgs          = new CopyOnWriteArraySet<>();
+        pkgsFound.forEach(pkg -> {
+            List<Pkg> pkgsWithDifferentUpdate = pkgsToCheck.parallelStream()
+                                                           .filter(pkg1 -> pkg.equalsExceptUpdate(pkg1))
+                                                           .collect(Collectors.toList());
+            diffPkgs.addAll(pkgsWithDifferentUpdate);
+
+            Pkg pkgWithMaxVersion = pkgsWithDifferentUpdate.parallelStream()
+                                                           .max(Comparator.comparing(Pkg::getVersionNumber))
+                                                           .orElse(null);
+            if (null != pkgWithMaxVersion) {
+                List<Pkg> pkgsWithSmallerVersions = filteredPkgsFound.parallelStream()
+                                                                     .filter(pkg3 -> pkg3.equalsExceptUpdate(pkgWithMaxVersion))
+                                                                     .filter(pkg3 -> pkg3.getSemver().compareTo(pkgWithMaxVersion.getSemver()) < 0)
+                                                                     .collect(Collectors.toList());
+                if (!pkgsWithSmallerVersions.isEmpty()) { filteredPkgsFound.removeAll(pkgsWithSmallerVersions); }
+                filteredPkgsFound.add(pkgWithMaxVersion);
+            }
+        });
+
+        pkgsToCheck.removeAll(diffPkgs);
+        filteredPkgsFound.addAll(pkgsToCheck);
+        return new ArrayList<>(filteredPkgsFound);
+    }
+}
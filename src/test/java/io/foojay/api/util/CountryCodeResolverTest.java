@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.junit.jupiter.api.Test;
+
+
+public class CountryCodeResolverTest {
+
+    @Test
+    public void parseIpv4() {
+        assert CountryCodeResolver.parseIpv4("0.0.0.0")         == 0;
+        assert CountryCodeResolver.parseIpv4("1.2.3.4")         == 0x01020304L;
+        assert CountryCodeResolver.parseIpv4("255.255.255.255") == 0xFFFFFFFFL;
+        assert CountryCodeResolver.parseIpv4("256.1.1.1")       == -1;
+        assert CountryCodeResolver.parseIpv4("1.2.3")           == -1;
+        assert CountryCodeResolver.parseIpv4("1.2.3.4.5")       == -1;
+        assert CountryCodeResolver.parseIpv4("1..3.4")          == -1;
+        assert CountryCodeResolver.parseIpv4("2001:db8::1")     == -1;
+    }
+
+    @Test
+    public void longestPrefixMatch() {
+        final CountryCodeResolver.Table.Builder builder = new CountryCodeResolver.Table.Builder();
+        builder.add((int) CountryCodeResolver.parseIpv4("10.0.0.0"), 8, "de");
+        builder.add((int) CountryCodeResolver.parseIpv4("10.1.0.0"), 16, "ch");
+        builder.add((int) CountryCodeResolver.parseIpv4("10.1.2.0"), 24, "at");
+        builder.add((int) CountryCodeResolver.parseIpv4("200.0.0.0"), 8, "br");
+        final CountryCodeResolver.Table table = builder.build();
+
+        assert table.size() == 4;
+        assert table.lookup((int) CountryCodeResolver.parseIpv4("10.2.3.4")).equals("de");
+        assert table.lookup((int) CountryCodeResolver.parseIpv4("10.1.3.4")).equals("ch");
+        assert table.lookup((int) CountryCodeResolver.parseIpv4("10.1.2.4")).equals("at");
+        assert table.lookup((int) CountryCodeResolver.parseIpv4("200.10.20.30")).equals("br");
+        assert table.lookup((int) CountryCodeResolver.parseIpv4("11.0.0.1")).isEmpty();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Distro;
+import io.foojay.api.pkg.Pkg;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+
+public class DistroUpdateSchedulerTest {
+
+    @Test
+    public void nextUpdateIsDelayedByJitter() {
+        final Instant lastUpdate = Instant.now();
+        final long    interval   = TimeUnit.MINUTES.toSeconds(Distro.TEMURIN.getUpdateIntervalInMinutes());
+        final long    jitter     = Math.min(interval / 10, 300);
+        for (int i = 0 ; i < 100 ; i++) {
+            final Instant nextUpdate = DistroUpdateScheduler.getNextUpdate(Distro.TEMURIN, lastUpdate);
+            assert !nextUpdate.isBefore(lastUpdate.plusSeconds(interval));
+            assert !nextUpdate.isAfter(lastUpdate.plusSeconds(interval + jitter));
+        }
+    }
+
+    @Test
+    public void onlyDueDistrosAreUpdated() throws Exception {
+        final List<Distro>          updated     = new ArrayList<>();
+        final List<Distro>          lastUpdates = new ArrayList<>();
+        final DistroUpdateScheduler scheduler   = createScheduler(distro -> {
+            synchronized (updated) { updated.add(distro); }
+            return List.of(new Pkg());
+        }, pkgs -> List.of(new BatchResult(0, pkgs.size(), 0, 0)), lastUpdates, Set.of(Distro.TEMURIN, Distro.ZULU), 1);
+
+        final Instant now = Instant.now();
+        scheduler.setNextUpdate(Distro.TEMURIN, now.minusSeconds(1));
+        scheduler.setNextUpdate(Distro.ZULU, now.plus(Duration.ofHours(1)));
+        scheduler.tick(now);
+        awaitIdle(scheduler);
+        scheduler.stop(1);
+
+        assert updated.equals(List.of(Distro.TEMURIN));
+        assert lastUpdates.equals(List.of(Distro.TEMURIN));
+        assert scheduler.getNextUpdate(Distro.TEMURIN).isAfter(now);
+    }
+
+    @Test
+    public void lastUpdateIsOnlyStoredIfPkgsChanged() throws Exception {
+        final List<Distro>          lastUpdates = new ArrayList<>();
+        final DistroUpdateScheduler scheduler   = createScheduler(distro -> List.of(new Pkg()), pkgs -> List.of(new BatchResult(0, 0, 0, 0)),
+                                                                  lastUpdates, Set.of(Distro.TEMURIN), 1);
+
+        final Instant now = Instant.now();
+        scheduler.setNextUpdate(Distro.TEMURIN, now);
+        scheduler.tick(now);
+        awaitIdle(scheduler);
+        scheduler.stop(1);
+
+        assert lastUpdates.isEmpty();
+        assert scheduler.getNextUpdate(Distro.TEMURIN).isAfter(now);
+    }
+
+    @Test
+    public void lastUpdateIsKeptIfStoringFails() throws Exception {
+        final List<Distro>          lastUpdates = new ArrayList<>();
+        final DistroUpdateScheduler scheduler   = createScheduler(distro -> List.of(new Pkg()), pkgs -> List.of(new BatchResult(0, 0, 0, pkgs.size())),
+                                                                  lastUpdates, Set.of(Distro.SEMERU), 1);
+        final Instant lastUpdate = Distro.SEMERU.lastUpdate.get();
+
+        final Instant now = Instant.now();
+        scheduler.setNextUpdate(Distro.SEMERU, now);
+        scheduler.tick(now);
+        awaitIdle(scheduler);
+        scheduler.stop(1);
+
+        assert lastUpdates.isEmpty();
+        assert Distro.SEMERU.lastUpdate.get() == lastUpdate;
+        // A failing distribution is retried with the next interval and not on every tick
+        assert scheduler.getNextUpdate(Distro.SEMERU).isAfter(now);
+    }
+
+    @Test
+    public void busyHostDefersDistro() throws Exception {
+        assert DistroUpdateScheduler.getHost(Distro.TEMURIN).equals(DistroUpdateScheduler.getHost(Distro.SEMERU));
+
+        final CountDownLatch        started   = new CountDownLatch(1);
+        final CountDownLatch        release   = new CountDownLatch(1);
+        final List<Distro>          updated   = new ArrayList<>();
+        final DistroUpdateScheduler scheduler = createScheduler(distro -> {
+            synchronized (updated) { updated.add(distro); }
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ArrayList<>();
+        }, pkgs -> List.of(new BatchResult(0, pkgs.size(), 0, 0)), new ArrayList<>(), Set.of(Distro.TEMURIN, Distro.SEMERU), 1);
+
+        final Instant now = Instant.now();
+        scheduler.setNextUpdate(Distro.TEMURIN, now);
+        scheduler.setNextUpdate(Distro.SEMERU, now);
+        scheduler.tick(now);
+        assert started.await(5, TimeUnit.SECONDS);
+
+        // Both are due but share one slot on their host, so only one of them runs
+        assert scheduler.getRunning().size() == 1;
+        synchronized (updated) { assert updated.size() == 1; }
+
+        release.countDown();
+        awaitIdle(scheduler);
+
+        // The deferred distribution is started with the next tick
+        scheduler.tick(now);
+        awaitIdle(scheduler);
+        scheduler.stop(1);
+
+        assert updated.size() == 2;
+        assert updated.containsAll(List.of(Distro.TEMURIN, Distro.SEMERU));
+    }
+
+
+    private static DistroUpdateScheduler createScheduler(final Function<Distro, List<Pkg>> updater, final Function<Collection<Pkg>, List<BatchResult>> store,
+                                                         final List<Distro> lastUpdates, final Set<Distro> distros, final int requestsPerHost) {
+        return new DistroUpdateScheduler(updater, store, distro -> { synchronized (lastUpdates) { lastUpdates.add(distro); } }, distros, 2, requestsPerHost);
+    }
+
+    private static void awaitIdle(final DistroUpdateScheduler scheduler) throws InterruptedException {
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!scheduler.getRunning().isEmpty() && System.nanoTime() < end) { Thread.sleep(10); }
+        assert scheduler.getRunning().isEmpty();
+    }
+}
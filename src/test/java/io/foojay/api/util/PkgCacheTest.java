@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import io.foojay.api.pkg.Pkg;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+
+public class PkgCacheTest {
+
+    @Test
+    public void containsDownload() {
+        final Pkg pkg1 = createPkg("jdk-17.0.1.tar.gz", "https://example.com/jdk-17.0.1.tar.gz");
+        final Pkg pkg2 = createPkg("jdk-17.0.2.tar.gz", "https://example.com/jdk-17.0.2.tar.gz");
+
+        final PkgCache<String, Pkg> cache = new PkgCache<>();
+        cache.setAll(Map.of(pkg1.getId(), pkg1));
+
+        assert cache.containsDownload("jdk-17.0.1.tar.gz", "https://example.com/jdk-17.0.1.tar.gz");
+        assert !cache.containsDownload("jdk-17.0.1.tar.gz", "https://example.com/jdk-17.0.2.tar.gz");
+        assert !cache.containsDownload("jdk-17.0.2.tar.gz", "https://example.com/jdk-17.0.2.tar.gz");
+
+        // Index has to follow modifications of the cache
+        cache.add(pkg2.getId(), pkg2);
+        assert cache.containsDownload("jdk-17.0.2.tar.gz", "https://example.com/jdk-17.0.2.tar.gz");
+        assert cache.getByDownload("jdk-17.0.2.tar.gz", "https://example.com/jdk-17.0.2.tar.gz") == pkg2;
+
+        cache.remove(pkg1.getId());
+        assert !cache.containsDownload("jdk-17.0.1.tar.gz", "https://example.com/jdk-17.0.1.tar.gz");
+
+        cache.clear();
+        assert !cache.containsDownload("jdk-17.0.2.tar.gz", "https://example.com/jdk-17.0.2.tar.gz");
+    }
+
+
+    private static Pkg createPkg(final String filename, final String directDownloadUri) {
+        final Pkg pkg = new Pkg();
+        pkg.setFileName(filename);
+        pkg.setDirectDownloadUri(directDownloadUri);
+        return pkg;
+    }
+}
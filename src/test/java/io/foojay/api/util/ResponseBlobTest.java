@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021.
+ *
+ * This file is part of DiscoAPI.
+ *
+ *     DiscoAPI is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 2 of the License, or
+ *     (at your option) any later version.
+ *
+ *     DiscoAPI is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with DiscoAPI.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.foojay.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+
+
+public class ResponseBlobTest {
+
+    @Test
+    public void getEncoding() {
+        assert ResponseBlob.getEncoding(null).equals(ResponseBlob.ENCODING_IDENTITY);
+        assert ResponseBlob.getEncoding("").equals(ResponseBlob.ENCODING_IDENTITY);
+        assert ResponseBlob.getEncoding("gzip").equals(ResponseBlob.ENCODING_GZIP);
+        assert ResponseBlob.getEncoding("deflate, GZIP;q=0.5").equals(ResponseBlob.ENCODING_GZIP);
+        assert ResponseBlob.getEncoding("*").equals(ResponseBlob.ENCODING_GZIP);
+        assert ResponseBlob.getEncoding("br").equals(ResponseBlob.ENCODING_IDENTITY);
+        assert ResponseBlob.getEncoding("deflate").equals(ResponseBlob.ENCODING_IDENTITY);
+
+        // q=0 means not acceptable
+        assert ResponseBlob.getEncoding("gzip;q=0").equals(ResponseBlob.ENCODING_IDENTITY);
+        assert ResponseBlob.getEncoding("gzip; q=0.000, identity").equals(ResponseBlob.ENCODING_IDENTITY);
+        assert ResponseBlob.getEncoding("gzip;q=0.01").equals(ResponseBlob.ENCODING_GZIP);
+    }
+
+    @Test
+    public void matches() {
+        final String eTag = "\"0123456789abcdef\"";
+        assert !ResponseBlob.matches(null, eTag);
+        assert !ResponseBlob.matches("", eTag);
+        assert !ResponseBlob.matches("\"0123456789abcdef\"", null);
+        assert ResponseBlob.matches("*", eTag);
+        assert ResponseBlob.matches(" * ", eTag);
+        assert ResponseBlob.matches("\"0123456789abcdef\"", eTag);
+        assert ResponseBlob.matches("\"other\", \"0123456789abcdef\"", eTag);
+        assert !ResponseBlob.matches("\"other\"", eTag);
+
+        // If-None-Match uses the weak comparison
+        assert ResponseBlob.matches("W/\"0123456789abcdef\"", eTag);
+        assert ResponseBlob.matches("\"0123456789abcdef\"", "W/\"0123456789abcdef\"");
+    }
+
+    @Test
+    public void getBuffer() {
+        final byte[]       bytes  = "{\"result\":[]}".getBytes(StandardCharsets.UTF_8);
+        final ResponseBlob blob   = ResponseBlob.of(bytes);
+        final ByteBuffer   buffer = blob.getBuffer(ResponseBlob.ENCODING_IDENTITY);
+
+        assert buffer.isReadOnly();
+        assert buffer.remaining() == bytes.length;
+        assert blob.getLength(ResponseBlob.ENCODING_GZIP) == blob.getBuffer(ResponseBlob.ENCODING_GZIP).remaining();
+        assert blob.isNotModified(ResponseBlob.createETag(bytes), ResponseBlob.ENCODING_IDENTITY);
+        assert !blob.isNotModified(ResponseBlob.createETag(bytes), ResponseBlob.ENCODING_GZIP);
+        assert blob.isNotModified(blob.getETag(ResponseBlob.ENCODING_GZIP), ResponseBlob.ENCODING_GZIP);
+        assert !blob.getETag(ResponseBlob.ENCODING_GZIP).equals(blob.getETag(ResponseBlob.ENCODING_IDENTITY));
+        try {
+            buffer.put(0, (byte) 0);
+            assert false;
+        } catch (ReadOnlyBufferException e) {
+            // expected
+        }
+    }
+}